@@ -0,0 +1,107 @@
+package main;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the simulation that backs <tt>Decider</tt>: generating a random hand for a scenario, and a full
+ * <tt>computeExpectedValues</tt> call on a decider with an empty memo. The end-to-end benchmark also reports the
+ * number of hands simulated per second.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DeciderBenchmark {
+    @Param({"1", "6", "8", "1000"})
+    private int deckCount;
+
+    @Param({"0.75", "1.0"})
+    private double penetrationValue;
+
+    // kept small so that an end-to-end call, which also solves every hand that hitting can reach, stays short
+    @Param({"10000"})
+    private int simulationCount;
+
+    private Rule rule;
+    private Decider decider;
+
+    // numbers the hands dealt by this thread, so that each one is dealt from its own random stream
+    private int trial;
+
+    // hard 16 against a 10 is close enough between hitting and standing to be a common benchmark hand
+    private final Scenario hard16 = new ScenarioBuilder()
+            .setPlayerValue(16)
+            .setDealerCard(Card.TEN)
+            .setSoftFlag(false)
+            .setPairFlag(false)
+            .build();
+
+    private final Scenario soft17 = new ScenarioBuilder()
+            .setPlayerValue(17)
+            .setDealerCard(Card.SIX)
+            .setSoftFlag(true)
+            .setPairFlag(false)
+            .build();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rule = new RuleBuilder()
+                .setDeckCount(deckCount)
+                .setPenetrationValue(penetrationValue)
+                .setDealerHitsSoft17(false)
+                .setCanSurrender(true)
+                .setMaxSplitHands(4)
+                .build();
+        decider = new Decider(rule, simulationCount);
+    }
+
+    /**
+     * Counts the hands simulated during an iteration so that JMH can report them as a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class HandCounter {
+        public long hands;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hands = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Pair<Shoe, Player> getShoePlayerPairHard() {
+        return decider.getShoePlayerPair(hard16, trial++);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Pair<Shoe, Player> getShoePlayerPairSoft() {
+        return decider.getShoePlayerPair(soft17, trial++);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Decision, Double> computeExpectedValues() throws Exception {
+        // a new decider has an empty memo, so every call simulates from scratch
+        return new Decider(rule, simulationCount).computeExpectedValues(hard16);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Map<Decision, Double> handsPerSecond(HandCounter counter) throws Exception {
+        final Decider freshDecider = new Decider(rule, simulationCount);
+        final Map<Decision, Double> expectedValues = freshDecider.computeExpectedValues(hard16);
+        counter.hands += freshDecider.getSimulatedHandCount();
+
+        return expectedValues;
+    }
+}
@@ -0,0 +1,53 @@
+package main;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a hand and reading its value and softness, which the simulation does after every card.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark {
+    // hands of two to five cards, including soft hands and hands with more than one ace
+    @Param({"TWO,NINE", "ACE,SIX", "ACE,ACE,FIVE", "THREE,ACE,TWO,ACE,FOUR"})
+    private String hand;
+
+    private Card[] cards;
+    private Player player;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final String[] cardNames = hand.split(",");
+        cards = new Card[cardNames.length];
+        for (int i = 0; i < cardNames.length; i++) {
+            cards[i] = Card.valueOf(cardNames[i]);
+        }
+
+        player = new Player();
+    }
+
+    private void dealHand() {
+        player.resetHand();
+        for (Card card : cards) {
+            player.addCard(card);
+        }
+    }
+
+    @Benchmark
+    public int getHandValue() {
+        dealHand();
+        return player.getHandValue();
+    }
+
+    @Benchmark
+    public boolean handIsSoft() {
+        dealHand();
+        return player.handIsSoft();
+    }
+}
@@ -0,0 +1,48 @@
+package main;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing cards from a shoe. Each invocation draws one card and puts it back so that the shoe keeps the
+ * composition it had after the cut card was placed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShoeBenchmark {
+    private static final long SEED = 20170117L;
+
+    @Param({"1", "6", "8", "1000"})
+    private int deckCount;
+
+    @Param({"0.5", "0.75", "1.0"})
+    private double penetrationValue;
+
+    private Shoe shoe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        shoe = new Shoe(deckCount, penetrationValue, new SplittableRandom(SEED));
+    }
+
+    @Benchmark
+    public Card removeTopCard() {
+        return shoe.putCardBack(shoe.removeTopCard());
+    }
+
+    @Benchmark
+    public Card removeCardWithMaxValue() {
+        return shoe.putCardBack(shoe.removeCardWithMaxValue(5));
+    }
+
+    @Benchmark
+    public Shoe rebuildShoe() {
+        return shoe.rebuildShoe();
+    }
+}
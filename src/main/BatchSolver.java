@@ -0,0 +1,314 @@
+package main;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Solves every scenario for one or more rule sets without a window, and writes the strategy chart to standard output
+ * as each layer of scenarios is solved. While a rule set is solved, its <tt>DeciderMetrics</tt> are registered as an
+ * MBean. For example:
+ *
+ * <pre>
+ * java main.BatchSolver --decks 6 --penetration 0.75 --h17 --surrender --max-splits 4 --simulations 1000000 \
+ *     --threads 8 --format csv
+ * </pre>
+ *
+ * Rule options: <tt>--decks N</tt>, <tt>--penetration P</tt>, <tt>--infinite</tt> (an infinite deck, which ignores
+ * the deck count and penetration), <tt>--h17</tt>, <tt>--surrender</tt>, and <tt>--max-splits N</tt>. Unset rules keep
+ * the defaults of <tt>RuleBuilder</tt>.
+ *
+ * Other options: <tt>--simulations N</tt> (hands per decision, or the most hands in adaptive mode),
+ * <tt>--mode MODE</tt> (an <tt>EvaluationMode</tt>, adaptive by default), <tt>--threads N</tt>, <tt>--seed N</tt>,
+ * <tt>--store FILE</tt> (an <tt>ExpectedValueStore</tt>), and <tt>--format csv|json</tt>. JSON is written as one object
+ * per line.
+ *
+ * To solve many rule sets in a row, pass <tt>--rules FILE</tt>, where each line of the file holds the rule options of
+ * one rule set. Rule options given on the command line apply to every line, and a line can override the ones that take
+ * a value.
+ */
+public class BatchSolver {
+    private static final String[] CSV_COLUMNS = {"decks", "penetration", "h17", "surrender", "max_splits",
+            "player_value", "soft", "pair", "dealer_card", "best_decision", "best_value", "hit", "stand", "double",
+            "split", "surrender_value"};
+
+    private final Settings settings;
+    private final PrintStream out;
+
+    BatchSolver(Settings settings, PrintStream out) {
+        this.settings = settings;
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        final Settings settings;
+        try {
+            settings = Settings.parse(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        try {
+            new BatchSolver(settings, System.out).run();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    void run() throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(settings.threadCount);
+        final ExpectedValueStore store = (settings.storeFile == null
+                ? null
+                : ExpectedValueStore.open(Paths.get(settings.storeFile)));
+        try {
+            if (settings.format.equals("csv")) {
+                out.println(String.join(",", CSV_COLUMNS));
+            }
+
+            for (RuleBuilder ruleBuilder : settings.ruleBuilders) {
+                final Rule rule = ruleBuilder.build();
+                final DeciderBuilder deciderBuilder = new DeciderBuilder()
+                        .setRule(rule)
+                        .setSimulationCount(settings.simulationCount)
+                        .setEvaluationMode(settings.evaluationMode)
+                        .setPool(pool)
+                        .setStore(store);
+                if (settings.seed != null) {
+                    deciderBuilder.setSeed(settings.seed);
+                }
+
+                final long startTime = System.nanoTime();
+                final Decider decider = deciderBuilder.build();
+                final ObjectName mBeanName = decider.getMetrics().registerMBean(toString(rule));
+                decider.solveAll((scenario, expectedValues) -> {
+                    final Pair<Decision, Double> bestResult;
+                    try {
+                        bestResult = decider.computeBestScenarioResult(scenario);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+
+                    out.println(settings.format.equals("csv")
+                            ? toCsv(rule, scenario, expectedValues, bestResult)
+                            : toJson(rule, scenario, expectedValues, bestResult));
+                    out.flush();
+                });
+                final long endTime = System.nanoTime();
+                final DeciderMetrics.Snapshot metrics = decider.getMetrics().snapshot();
+                System.err.println("Solved " + toString(rule) + " in " + (endTime - startTime) / 1000000000.0 + "s ("
+                        + metrics.getHandCount() + " hands)");
+                unregisterMBean(mBeanName);
+            }
+        } finally {
+            pool.shutdownNow();
+            if (store != null) {
+                store.close();
+            }
+        }
+    }
+
+    private static String toString(Rule rule) {
+        return (rule.isInfiniteDeck() ? "infinite deck, " : rule.getDeckCount() + " decks, " + rule.getPenetrationValue()
+                + " penetration, ")
+                + (rule.dealerHitsSoft17() ? "H17" : "S17") + (rule.canSurrender() ? ", surrender" : "")
+                + ", " + rule.getMaxSplitHands() + " split hands";
+    }
+
+    private static void unregisterMBean(ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String toCsv(Rule rule, Scenario scenario, Map<Decision, Double> expectedValues,
+                                Pair<Decision, Double> bestResult) {
+        final List<String> fields = new ArrayList<>();
+        fields.add(rule.isInfiniteDeck() ? "infinite" : String.valueOf(rule.getDeckCount()));
+        fields.add(String.valueOf(rule.getPenetrationValue()));
+        fields.add(String.valueOf(rule.dealerHitsSoft17()));
+        fields.add(String.valueOf(rule.canSurrender()));
+        fields.add(String.valueOf(rule.getMaxSplitHands()));
+        fields.add(String.valueOf(scenario.playerValue));
+        fields.add(String.valueOf(scenario.isPlayerSoft));
+        fields.add(String.valueOf(scenario.isPair));
+        fields.add(scenario.dealerCard.toString());
+        fields.add(bestResult.get(Decision.class).toString());
+        fields.add(formatValue(bestResult.get(Double.class)));
+        for (Decision decision : Decision.values()) {
+            fields.add(isAvailable(rule, scenario, decision) ? formatValue(expectedValues.get(decision)) : "");
+        }
+
+        return String.join(",", fields);
+    }
+
+    private static String toJson(Rule rule, Scenario scenario, Map<Decision, Double> expectedValues,
+                                 Pair<Decision, Double> bestResult) {
+        final StringBuilder result = new StringBuilder("{");
+        result.append("\"decks\":").append(rule.isInfiniteDeck() ? "\"infinite\"" : rule.getDeckCount());
+        result.append(",\"penetration\":").append(rule.getPenetrationValue());
+        result.append(",\"h17\":").append(rule.dealerHitsSoft17());
+        result.append(",\"surrender\":").append(rule.canSurrender());
+        result.append(",\"maxSplits\":").append(rule.getMaxSplitHands());
+        result.append(",\"playerValue\":").append(scenario.playerValue);
+        result.append(",\"soft\":").append(scenario.isPlayerSoft);
+        result.append(",\"pair\":").append(scenario.isPair);
+        result.append(",\"dealerCard\":\"").append(scenario.dealerCard).append('"');
+        result.append(",\"bestDecision\":\"").append(bestResult.get(Decision.class)).append('"');
+        result.append(",\"bestValue\":").append(formatValue(bestResult.get(Double.class)));
+        result.append(",\"expectedValues\":{");
+
+        boolean isFirst = true;
+        for (Decision decision : Decision.values()) {
+            if (!isAvailable(rule, scenario, decision)) {
+                continue;
+            }
+
+            result.append(isFirst ? "" : ",");
+            result.append('"').append(decision).append("\":").append(formatValue(expectedValues.get(decision)));
+            isFirst = false;
+        }
+
+        return result.append("}}").toString();
+    }
+
+    // non-pairs cannot be split, and surrendering is only in the chart if the rules allow it
+    private static boolean isAvailable(Rule rule, Scenario scenario, Decision decision) {
+        return (decision != Decision.SPLIT || scenario.isPair) && (decision != Decision.SURRENDER || rule.canSurrender());
+    }
+
+    private static String formatValue(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    /**
+     * The parsed command-line options.
+     */
+    static class Settings {
+        private final List<RuleBuilder> ruleBuilders = new ArrayList<>();
+        private int simulationCount = 1000000;
+        private EvaluationMode evaluationMode = EvaluationMode.ADAPTIVE;
+        private int threadCount = Runtime.getRuntime().availableProcessors();
+        private Long seed = null;
+        private String storeFile = null;
+        private String format = "csv";
+
+        static Settings parse(String[] args) throws IOException {
+            final Settings settings = new Settings();
+            final List<String> commonRuleArgs = new ArrayList<>();
+            String rulesFile = null;
+
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--simulations":
+                        settings.simulationCount = Integer.parseInt(getValue(args, ++i));
+                        break;
+                    case "--mode":
+                        settings.evaluationMode = EvaluationMode.valueOf(getValue(args, ++i).toUpperCase(Locale.ROOT));
+                        break;
+                    case "--threads":
+                        settings.threadCount = Integer.parseInt(getValue(args, ++i));
+                        break;
+                    case "--seed":
+                        settings.seed = Long.parseLong(getValue(args, ++i));
+                        break;
+                    case "--store":
+                        settings.storeFile = getValue(args, ++i);
+                        break;
+                    case "--format":
+                        settings.format = getValue(args, ++i).toLowerCase(Locale.ROOT);
+                        if (!settings.format.equals("csv") && !settings.format.equals("json")) {
+                            throw new IllegalArgumentException("Unknown format " + settings.format);
+                        }
+                        break;
+                    case "--rules":
+                        rulesFile = getValue(args, ++i);
+                        break;
+                    case "--infinite":
+                    case "--h17":
+                    case "--surrender":
+                        commonRuleArgs.add(args[i]);
+                        break;
+                    default:
+                        // the remaining rule options take a value
+                        commonRuleArgs.add(args[i]);
+                        commonRuleArgs.add(getValue(args, ++i));
+                        break;
+                }
+            }
+
+            if (rulesFile == null) {
+                settings.ruleBuilders.add(parseRule(commonRuleArgs));
+            } else {
+                for (String line : Files.readAllLines(Paths.get(rulesFile))) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+
+                    final List<String> ruleArgs = new ArrayList<>(commonRuleArgs);
+                    for (String arg : line.trim().split("\\s+")) {
+                        ruleArgs.add(arg);
+                    }
+                    settings.ruleBuilders.add(parseRule(ruleArgs));
+                }
+            }
+
+            return settings;
+        }
+
+        private static RuleBuilder parseRule(List<String> args) {
+            final RuleBuilder builder = new RuleBuilder();
+            for (int i = 0; i < args.size(); i++) {
+                switch (args.get(i)) {
+                    case "--decks":
+                        builder.setDeckCount(Integer.parseInt(getValue(args, ++i)));
+                        break;
+                    case "--penetration":
+                        builder.setPenetrationValue(Double.parseDouble(getValue(args, ++i)));
+                        break;
+                    case "--infinite":
+                        builder.setInfiniteDeck(true);
+                        break;
+                    case "--h17":
+                        builder.setDealerHitsSoft17(true);
+                        break;
+                    case "--surrender":
+                        builder.setCanSurrender(true);
+                        break;
+                    case "--max-splits":
+                        builder.setMaxSplitHands(Integer.parseInt(getValue(args, ++i)));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args.get(i));
+                }
+            }
+
+            return builder;
+        }
+
+        private static String getValue(String[] args, int i) {
+            if (i >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+            }
+
+            return args[i];
+        }
+
+        private static String getValue(List<String> args, int i) {
+            return getValue(args.toArray(new String[0]), i);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package main;
 
-import java.util.concurrent.ThreadLocalRandom;
-
 /**
  * Created by Brian on 1/17/2017.
  */
@@ -20,6 +18,16 @@ public enum Card {
     QUEEN (10, "Queen"),
     JACK (10, "Jack");
 
+    // cardsByValue[value] is the first card with that value, or null if there is none
+    private static final Card[] cardsByValue = new Card[ACE.value + 1];
+    static {
+        for (Card card : values()) {
+            if (cardsByValue[card.value] == null) {
+                cardsByValue[card.value] = card;
+            }
+        }
+    }
+
     private int value;
     private String name;
 
@@ -33,30 +41,11 @@ public enum Card {
     }
 
     public static Card getCardWithValue(int target) {
-        for (Card card : values()) {
-            if (card.getValue() == target) {
-                return card;
-            }
-        }
-
-        return null;
-    }
-
-    public static Card getRandom() {
-        return values()[ThreadLocalRandom.current().nextInt(0, values().length)];
-    }
-
-    public static Card getRandomWithMaxRange(int maxValue) {
-        final Card[] cards = Card.values();
-
-        int maxIndex;
-        if (maxValue < 10) { // main.Card.TWO through main.Card.NINE
-            maxIndex = maxValue - 1; // cards[1] = main.Card.TWO, ..., cards[8] = main.Card.NINE
-        } else {
-            maxIndex = 12; // include 10/J/Q/K
+        if (target < 0 || target >= cardsByValue.length) {
+            return null;
         }
 
-        return values()[ThreadLocalRandom.current().nextInt(0, maxIndex + 1)];
+        return cardsByValue[target];
     }
 
     @Override
@@ -0,0 +1,110 @@
+package main;
+
+import java.util.List;
+
+/**
+ * Packs the exact cards of a player's hand, the dealer's up-card, and (for a hand made by splitting) the value of the
+ * card that was split away into a single long, so that composition-dependent results can be memoized compactly. The
+ * number of cards of each value (2-11) takes 5 bits, since a hand of at most 21 never holds more than 21 cards of one
+ * value, followed by 4 bits for the up-card's value and 4 bits for the split card's value (0 if there is none).
+ */
+public final class CompositionKey {
+    private static final int BITS_PER_VALUE = 5;
+    private static final int VALUE_COUNT = Card.ACE.getValue() - Card.TWO.getValue() + 1;
+    private static final int DEALER_CARD_SHIFT = BITS_PER_VALUE * VALUE_COUNT;
+    private static final int SPLIT_CARD_SHIFT = DEALER_CARD_SHIFT + 4;
+
+    private CompositionKey() {}
+
+    /**
+     * @param playerCards the cards in the player's hand
+     * @param dealerCard the dealer's up-card
+     * @return the key of the hand, which was not made by splitting
+     */
+    public static long of(List<Card> playerCards, Card dealerCard) {
+        long key = (long) dealerCard.getValue() << DEALER_CARD_SHIFT;
+        for (Card card : playerCards) {
+            key = addCard(key, card.getValue());
+        }
+
+        return key;
+    }
+
+    /**
+     * @param key a key with no up-card
+     * @param dealerCardValue the value of the dealer's up-card (2-11, where 11 is an ace)
+     * @return the key with the up-card
+     */
+    public static long setDealerCard(long key, int dealerCardValue) {
+        return key | ((long) dealerCardValue << DEALER_CARD_SHIFT);
+    }
+
+    /**
+     * @param key a key
+     * @param cardValue the value of a card (2-11, where 11 is an ace)
+     * @return the key after the player draws the card
+     */
+    public static long addCard(long key, int cardValue) {
+        return key + (1L << getShift(cardValue));
+    }
+
+    /**
+     * @param key the key of a hand that holds a pair
+     * @param splitCardValue the value of each card of the pair
+     * @return the key of one of the hands after splitting, before it gets its second card
+     */
+    public static long split(long key, int splitCardValue) {
+        final long dealerBits = key & (0xFL << DEALER_CARD_SHIFT);
+        return addCard(dealerBits, splitCardValue) | ((long) splitCardValue << SPLIT_CARD_SHIFT);
+    }
+
+    public static int getCount(long key, int cardValue) {
+        return (int) (key >>> getShift(cardValue)) & ((1 << BITS_PER_VALUE) - 1);
+    }
+
+    public static int getDealerCardValue(long key) {
+        return (int) (key >>> DEALER_CARD_SHIFT) & 0xF;
+    }
+
+    /**
+     * @param key a key
+     * @return the value of the card that was split away from the hand, or 0 if the hand was not made by splitting
+     */
+    public static int getSplitCardValue(long key) {
+        return (int) (key >>> SPLIT_CARD_SHIFT) & 0xF;
+    }
+
+    public static int getCardCount(long key) {
+        int cardCount = 0;
+        for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+            cardCount += getCount(key, value);
+        }
+
+        return cardCount;
+    }
+
+    /**
+     * @param key a key
+     * @return the value of the player's hand when every ace counts as 1
+     */
+    public static int getHardValue(long key) {
+        int hardValue = 0;
+        for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+            hardValue += getCount(key, value) * (value == Card.ACE.getValue() ? 1 : value);
+        }
+
+        return hardValue;
+    }
+
+    public static boolean isSoft(long key) {
+        return getCount(key, Card.ACE.getValue()) > 0 && getHardValue(key) + 10 <= 21;
+    }
+
+    public static int getHandValue(long key) {
+        return isSoft(key) ? getHardValue(key) + 10 : getHardValue(key);
+    }
+
+    private static int getShift(int cardValue) {
+        return (cardValue - Card.TWO.getValue()) * BITS_PER_VALUE;
+    }
+}
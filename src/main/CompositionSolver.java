@@ -0,0 +1,212 @@
+package main;
+
+import java.util.*;
+
+/**
+ * Computes composition-dependent expected values: unlike a <tt>Scenario</tt>, which only knows the total of the
+ * player's hand, every card in the player's hand (and every card he draws) is removed from the shoe before the dealer's
+ * outcomes and the player's draws are computed. This matters most with few decks, where hard 16 made of 10-6 and hard
+ * 16 made of 4-4-4-4 leave quite different shoes behind.
+ *
+ * Results are computed exactly, by enumeration, and memoized under a <tt>CompositionKey</tt>. The number of keys
+ * reachable from all starting hands is far larger than the number of scenarios, so the memo holds at most a fixed
+ * number of entries and evicts the least recently used one when it is full.
+ *
+ * After a split, each hand is valued on its own: the other card of the pair is removed from the shoe, but the cards
+ * drawn to the other hand are not, and pairs are not split again.
+ */
+public class CompositionSolver {
+    /**
+     * The default number of hands whose expected values are memoized.
+     */
+    public static final int DEFAULT_MEMO_CAPACITY = 1 << 17;
+
+    // indices into the memoized arrays
+    private static final int STAND = 0;
+    private static final int HIT = 1;
+    private static final int DOUBLE = 2;
+
+    private final Rule rule;
+    private final int[] shoeValueCounts;
+    private final Map<Long, double[]> memo;
+
+    public CompositionSolver(Rule rule) {
+        this(rule, DEFAULT_MEMO_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     * @param rule the rules of the game
+     * @param memoCapacity the most hands whose expected values are memoized at once
+     * @throws IllegalArgumentException if the rules call for an infinite deck, where the cards in a hand do not change
+     * the shoe
+     */
+    public CompositionSolver(Rule rule, int memoCapacity) {
+        if (rule.isInfiniteDeck()) {
+            throw new IllegalArgumentException("An infinite deck has no composition to depend on");
+        }
+
+        this.rule = rule;
+        this.shoeValueCounts = DealerOutcomeTable.getShoeValueCounts(rule.getDeckCount());
+        this.memo = Collections.synchronizedMap(new LinkedHashMap<Long, double[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+                return size() > memoCapacity;
+            }
+        });
+    }
+
+    /**
+     * Computes the expected value of hitting, standing, doubling down, splitting, and surrendering with the given
+     * cards. Values that cannot apply (splitting a non-pair) are <tt>Integer.MIN_VALUE</tt>, like in <tt>Decider</tt>.
+     * @param playerCards the cards in the player's hand (at least two)
+     * @param dealerCard the dealer's up-card
+     * @return a map containing the expected values
+     * @throws IllegalArgumentException if the hand is not a playable hand, or if the shoe does not hold its cards
+     */
+    public Map<Decision, Double> computeExpectedValues(List<Card> playerCards, Card dealerCard) {
+        final long key = CompositionKey.of(playerCards, dealerCard);
+        if (playerCards.size() < 2 || CompositionKey.getHardValue(key) > 21) {
+            throw new IllegalArgumentException("Not a playable hand: " + playerCards);
+        }
+
+        // the up-card is dealt from the same shoe
+        final int[] valueCounts = getShoeValueCounts(key);
+        valueCounts[dealerCard.getValue()] -= 1;
+        for (int count : valueCounts) {
+            if (count < 0) {
+                throw new IllegalArgumentException("The shoe does not hold " + playerCards + " and " + dealerCard);
+            }
+        }
+
+        final double[] values = getValues(key);
+        final boolean isPair = playerCards.size() == 2
+                && playerCards.get(0).getValue() == playerCards.get(1).getValue();
+
+        final Map<Decision, Double> expectedValueMap = new HashMap<>();
+        expectedValueMap.put(Decision.HIT, values[HIT]);
+        expectedValueMap.put(Decision.STAND, values[STAND]);
+        expectedValueMap.put(Decision.DOUBLE, values[DOUBLE]);
+        expectedValueMap.put(Decision.SPLIT, isPair
+                ? 2 * getSplitHandValue(CompositionKey.split(key, playerCards.get(0).getValue()))
+                : Integer.MIN_VALUE);
+        expectedValueMap.put(Decision.SURRENDER, -0.5);
+
+        return expectedValueMap;
+    }
+
+    /**
+     * Computes the best decision to make with the given cards, as a decision-value pair. The player may only double
+     * down or surrender on his first two cards.
+     * @param playerCards the cards in the player's hand (at least two)
+     * @param dealerCard the dealer's up-card
+     * @return a decision-value pair
+     */
+    public Pair<Decision, Double> computeBestResult(List<Card> playerCards, Card dealerCard) {
+        final boolean firstMove = playerCards.size() == 2;
+        return Decider.pickBestDecision(computeExpectedValues(playerCards, dealerCard), rule, firstMove, firstMove);
+    }
+
+    /**
+     * @return the number of hands whose expected values are memoized
+     */
+    public int getMemoSize() {
+        return memo.size();
+    }
+
+    /**
+     * Gets the composition of the shoe that the dealer and the player draw from: every card but the player's cards
+     * and any card split away from his hand. The up-card is left in, since <tt>DealerOutcomeTable</tt> removes it.
+     */
+    private int[] getShoeValueCounts(long key) {
+        final int[] valueCounts = shoeValueCounts.clone();
+        for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+            valueCounts[value] -= CompositionKey.getCount(key, value);
+        }
+
+        final int splitCardValue = CompositionKey.getSplitCardValue(key);
+        if (splitCardValue != 0) {
+            valueCounts[splitCardValue] -= 1;
+        }
+
+        return valueCounts;
+    }
+
+    /**
+     * Gets the expected values of standing, hitting (followed by perfect play), and doubling down with a hand.
+     * @param key the key of a hand of at most 21
+     * @return the expected values, indexed by <tt>STAND</tt>, <tt>HIT</tt>, and <tt>DOUBLE</tt>
+     */
+    private double[] getValues(long key) {
+        final double[] memoizedValues = memo.get(key);
+        if (memoizedValues != null) {
+            return memoizedValues;
+        }
+
+        final int[] valueCounts = getShoeValueCounts(key);
+        final Card dealerCard = Card.getCardWithValue(CompositionKey.getDealerCardValue(key));
+        final DealerOutcomeTable dealerOutcomeTable =
+                DealerOutcomeTable.compute(dealerCard, rule.dealerHitsSoft17(), valueCounts);
+
+        // the player draws from the shoe without the up-card
+        valueCounts[dealerCard.getValue()] -= 1;
+        int cardsInShoe = 0;
+        for (int count : valueCounts) {
+            cardsInShoe += count;
+        }
+
+        final double[] values = new double[3];
+        values[STAND] = dealerOutcomeTable.getStandValue(CompositionKey.getHandValue(key));
+        for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+            if (valueCounts[value] == 0) {
+                continue;
+            }
+
+            final double drawProbability = (double) valueCounts[value] / cardsInShoe;
+            final long newKey = CompositionKey.addCard(key, value);
+            if (CompositionKey.getHardValue(newKey) > 21) {
+                values[HIT] -= drawProbability;
+                values[DOUBLE] -= 2 * drawProbability;
+            } else {
+                final double[] newValues = getValues(newKey);
+                values[HIT] += drawProbability * Math.max(newValues[STAND], newValues[HIT]);
+                values[DOUBLE] += 2 * drawProbability * newValues[STAND];
+            }
+        }
+
+        memo.put(key, values);
+        return values;
+    }
+
+    /**
+     * Computes the expected value of one hand made by splitting, once it gets its second card. The player may double
+     * down, except that split aces must stand.
+     * @param key the key of the hand holding only the split card
+     */
+    private double getSplitHandValue(long key) {
+        final int splitCardValue = CompositionKey.getSplitCardValue(key);
+        final int[] valueCounts = getShoeValueCounts(key);
+        valueCounts[CompositionKey.getDealerCardValue(key)] -= 1;
+        int cardsInShoe = 0;
+        for (int count : valueCounts) {
+            cardsInShoe += count;
+        }
+
+        double value = 0;
+        for (int cardValue = Card.TWO.getValue(); cardValue <= Card.ACE.getValue(); cardValue++) {
+            if (valueCounts[cardValue] == 0) {
+                continue;
+            }
+
+            final double[] values = getValues(CompositionKey.addCard(key, cardValue));
+            final double handValue = (splitCardValue == Card.ACE.getValue())
+                    ? values[STAND] // if we split aces, we cannot take more cards
+                    : Math.max(values[STAND], Math.max(values[HIT], values[DOUBLE]));
+            value += (double) valueCounts[cardValue] / cardsInShoe * handValue;
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,214 @@
+package main;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Solves the strategy chart at each true count of a card counting system, so that the index numbers at which a
+ * counter deviates from basic strategy can be read off.
+ *
+ * The cards dealt before a hand are not random when the true count is known: a high count means that more low cards
+ * than usual have been dealt. For each true count, the solver finds the most likely composition of the cards left in
+ * the shoe at the average point in the shoe where hands are played (half of the penetration). Each card is taken to
+ * have been dealt with a probability that depends only on its tag, <tt>1 / (1 + exp(-(mu + lambda * tag)))</tt>, where
+ * <tt>mu</tt> sets the number of cards dealt and <tt>lambda</tt> sets the running count. The chart for that
+ * composition is then computed exactly by an <tt>ExactEvaluator</tt>.
+ *
+ * Each chart takes a fraction of a second, since nothing is simulated. Neighboring true counts that round to the same
+ * composition share one chart, and with it the cached dealer outcome tables.
+ */
+public class CountIndexSolver {
+    // the range of lambda to search, which is wide enough to reach the most extreme compositions
+    private static final double MAX_TILT = 20;
+    private static final int BISECTION_STEPS = 60;
+
+    private final Rule rule;
+    private final CountingSystem countingSystem;
+    private final int[] shoeValueCounts;
+    private final int dealtCardCount;
+
+    // charts keyed by the composition that they were solved for
+    private final Map<List<Integer>, StrategyTable> tablesByComposition = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * @param rule the rules of the game
+     * @param countingSystem the counting system whose true counts the charts are solved at
+     * @throws IllegalArgumentException if the rules call for an infinite deck, which has no true count
+     */
+    public CountIndexSolver(Rule rule, CountingSystem countingSystem) {
+        if (rule.isInfiniteDeck()) {
+            throw new IllegalArgumentException("An infinite deck has no true count");
+        }
+
+        this.rule = rule;
+        this.countingSystem = countingSystem;
+        this.shoeValueCounts = DealerOutcomeTable.getShoeValueCounts(rule.getDeckCount());
+        this.dealtCardCount = (int) Math.round(getCardCount(shoeValueCounts) * rule.getPenetrationValue() / 2);
+    }
+
+    /**
+     * Solves the chart at every true count from <tt>minTrueCount</tt> to <tt>maxTrueCount</tt>, in parallel.
+     * @param minTrueCount the lowest true count
+     * @param maxTrueCount the highest true count
+     * @return the charts and their index numbers
+     */
+    public IndexTable solve(int minTrueCount, int maxTrueCount) {
+        final Map<Integer, StrategyTable> tables = new ConcurrentHashMap<>();
+        IntStream.rangeClosed(minTrueCount, maxTrueCount).parallel()
+                .forEach((trueCount) -> tables.put(trueCount, getStrategyTable(trueCount)));
+
+        final IndexTable indexTable = new IndexTable();
+        for (Map.Entry<Integer, StrategyTable> entry : tables.entrySet()) {
+            indexTable.put(entry.getKey(), entry.getValue());
+        }
+
+        return indexTable;
+    }
+
+    /**
+     * Solves the chart at one true count.
+     * @param trueCount the running count per deck left in the shoe
+     * @return the chart
+     */
+    public StrategyTable getStrategyTable(int trueCount) {
+        final int[] valueCounts = getValueCounts(trueCount);
+        final List<Integer> composition = new ArrayList<>();
+        for (int count : valueCounts) {
+            composition.add(count);
+        }
+
+        StrategyTable table = tablesByComposition.get(composition);
+        if (table == null) {
+            table = solveComposition(valueCounts);
+            final StrategyTable existingTable = tablesByComposition.putIfAbsent(composition, table);
+            if (existingTable != null) {
+                table = existingTable;
+            }
+        }
+
+        return table;
+    }
+
+    private StrategyTable solveComposition(int[] valueCounts) {
+        final ExactEvaluator evaluator = new ExactEvaluator(rule, valueCounts);
+        final StrategyTable table = new StrategyTable();
+        for (Scenario scenario : Scenario.getAll()) {
+            final Map<Decision, Double> expectedValues = evaluator.computeExpectedValues(scenario);
+            table.put(scenario, expectedValues, Decider.pickBestDecision(expectedValues, rule, true, true));
+        }
+
+        return table;
+    }
+
+    /**
+     * Finds the most likely composition of the cards left in the shoe at a true count. Every value keeps at least one
+     * card, so that every up-card can still be dealt.
+     * @param trueCount the running count per deck left in the shoe
+     * @return the number of cards of each value (2-11, where 11 is an ace) left in the shoe
+     */
+    public int[] getValueCounts(int trueCount) {
+        final int cardsLeft = getCardCount(shoeValueCounts) - dealtCardCount;
+        final double runningCount = trueCount * (double) cardsLeft / (Deck.CARDS_PER_RANK * Card.values().length);
+
+        // the running count of the dealt cards only grows with lambda
+        double lowTilt = -MAX_TILT;
+        double highTilt = MAX_TILT;
+        for (int i = 0; i < BISECTION_STEPS; i++) {
+            final double tilt = (lowTilt + highTilt) / 2;
+            final double[] dealtCounts = getDealtCounts(tilt);
+
+            double dealtRunningCount = 0;
+            for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                dealtRunningCount += countingSystem.getTag(value) * dealtCounts[value];
+            }
+
+            if (dealtRunningCount < runningCount) {
+                lowTilt = tilt;
+            } else {
+                highTilt = tilt;
+            }
+        }
+
+        final double[] dealtCounts = getDealtCounts((lowTilt + highTilt) / 2);
+        final double[] expectedCounts = new double[shoeValueCounts.length];
+        for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+            expectedCounts[value] = shoeValueCounts[value] - dealtCounts[value];
+        }
+
+        return roundCounts(expectedCounts, cardsLeft);
+    }
+
+    /**
+     * Gets the expected number of dealt cards of each value when each card is dealt with a probability that depends on
+     * its tag, and <tt>dealtCardCount</tt> cards are dealt in all.
+     * @param tilt how strongly the tag changes the probability (lambda)
+     * @return the expected number of dealt cards, indexed by card value
+     */
+    private double[] getDealtCounts(double tilt) {
+        // the number of dealt cards only grows with mu
+        double lowOffset = -MAX_TILT * 4;
+        double highOffset = MAX_TILT * 4;
+        final double[] dealtCounts = new double[shoeValueCounts.length];
+        for (int i = 0; i < BISECTION_STEPS; i++) {
+            final double offset = (lowOffset + highOffset) / 2;
+
+            double dealtCount = 0;
+            for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                dealtCounts[value] = shoeValueCounts[value]
+                        / (1 + Math.exp(-(offset + tilt * countingSystem.getTag(value))));
+                dealtCount += dealtCounts[value];
+            }
+
+            if (dealtCount < dealtCardCount) {
+                lowOffset = offset;
+            } else {
+                highOffset = offset;
+            }
+        }
+
+        return dealtCounts;
+    }
+
+    /**
+     * Rounds expected card counts to whole cards (by the largest remainder) so that they add up to <tt>total</tt>,
+     * giving every value at least one card.
+     * @param expectedCounts the expected counts, indexed by card value
+     * @param total the number of cards
+     * @return the rounded counts
+     */
+    private static int[] roundCounts(double[] expectedCounts, int total) {
+        final int[] counts = new int[expectedCounts.length];
+        final List<Integer> values = new ArrayList<>();
+        int remainingCards = total;
+        for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+            counts[value] = Math.max(1, (int) Math.floor(expectedCounts[value]));
+            remainingCards -= counts[value];
+            values.add(value);
+        }
+
+        // hand out the cards left to the largest remainders, or take cards back from the smallest ones
+        values.sort(Comparator.comparingDouble((value) -> counts[value] - expectedCounts[value]));
+        for (int i = 0; remainingCards != 0; i = (i + 1) % values.size()) {
+            if (remainingCards > 0) {
+                counts[values.get(i)] += 1;
+                remainingCards -= 1;
+            } else if (counts[values.get(values.size() - 1 - i)] > 1) {
+                counts[values.get(values.size() - 1 - i)] -= 1;
+                remainingCards += 1;
+            }
+        }
+
+        return counts;
+    }
+
+    private static int getCardCount(int[] valueCounts) {
+        int cardCount = 0;
+        for (int count : valueCounts) {
+            cardCount += count;
+        }
+
+        return cardCount;
+    }
+}
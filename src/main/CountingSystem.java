@@ -0,0 +1,18 @@
+package main;
+
+/**
+ * A card counting system that adds a tag to the running count for every card seen. A positive count means that the
+ * cards left in the shoe favor the player.
+ */
+public interface CountingSystem {
+    /**
+     * The Hi-Lo system: +1 for 2-6, 0 for 7-9, and -1 for tens and aces.
+     */
+    CountingSystem HI_LO = (cardValue) -> (cardValue <= 6 ? 1 : (cardValue >= 10 ? -1 : 0));
+
+    /**
+     * @param cardValue the value of a card (2-11, where 11 is an ace)
+     * @return the tag of the card
+     */
+    int getTag(int cardValue);
+}
@@ -0,0 +1,308 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The probability of each way the dealer can finish a hand (a final total of 17, 18, 19, 20, or 21, or a bust) given
+ * the dealer's up-card, whether the dealer hits a soft 17, and the composition of the shoe. Like in actual play, the
+ * dealer has already checked for a Blackjack, so the probabilities are conditioned on the dealer not having one.
+ *
+ * Tables are computed once by enumerating every card sequence the dealer can draw and are then cached, so the
+ * expected value of standing on a total is a dot product with the table instead of a simulated dealer hand.
+ */
+public class DealerOutcomeTable {
+    // indices into the outcome vector: final totals of 17, 18, ..., 21, then a bust
+    public static final int BUST = 5;
+    public static final int OUTCOME_COUNT = 6;
+
+    private static final Map<Key, DealerOutcomeTable> cache = new ConcurrentHashMap<>();
+
+    private final double[] outcomeProbabilities = new double[OUTCOME_COUNT];
+    private final double[] standValues = new double[22]; // indexed by the player's total
+
+    private DealerOutcomeTable(int upCardValue, boolean dealerHitsSoft17, int[] valueCounts) {
+        final Enumerator enumerator = new Enumerator(dealerHitsSoft17, valueCounts);
+        enumerator.enumerate(upCardValue, outcomeProbabilities);
+
+        for (int playerValue = 0; playerValue <= 21; playerValue++) {
+            standValues[playerValue] = computeStandValue(playerValue);
+        }
+    }
+
+    /**
+     * Gets the outcome table for an up-card under the given rules, where the dealer draws from a full shoe.
+     * @param upCard the dealer's up-card
+     * @param rule the rules of the game
+     * @return the cached outcome table
+     */
+    public static DealerOutcomeTable get(Card upCard, Rule rule) {
+        return get(upCard, rule.dealerHitsSoft17(), getShoeValueCounts(rule));
+    }
+
+    /**
+     * Gets the outcome table for an up-card when the dealer draws from a shoe with the given composition.
+     * @param upCard the dealer's up-card
+     * @param dealerHitsSoft17 whether the dealer hits a soft 17
+     * @param valueCounts the number of cards of each value (2-11, where 11 is an ace) in the shoe, including the
+     *                    up-card, or <tt>null</tt> for an infinite shoe in which the probability of drawing each card
+     *                    never changes
+     * @return the cached outcome table
+     */
+    public static DealerOutcomeTable get(Card upCard, boolean dealerHitsSoft17, int[] valueCounts) {
+        final Key key = new Key(upCard.getValue(), dealerHitsSoft17, valueCounts);
+
+        // computeIfAbsent would hold a lock on part of the map during the enumeration, so allow a rare duplicate
+        DealerOutcomeTable table = cache.get(key);
+        if (table == null) {
+            table = new DealerOutcomeTable(upCard.getValue(), dealerHitsSoft17, valueCounts);
+            final DealerOutcomeTable existingTable = cache.putIfAbsent(key, table);
+            if (existingTable != null) {
+                table = existingTable;
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Computes the outcome table for an up-card without caching it, for callers that keep their own (bounded) cache of
+     * compositions.
+     * @param upCard the dealer's up-card
+     * @param dealerHitsSoft17 whether the dealer hits a soft 17
+     * @param valueCounts the number of cards of each value (2-11, where 11 is an ace) in the shoe, including the up-card
+     * @return the outcome table
+     */
+    static DealerOutcomeTable compute(Card upCard, boolean dealerHitsSoft17, int[] valueCounts) {
+        return new DealerOutcomeTable(upCard.getValue(), dealerHitsSoft17, valueCounts);
+    }
+
+    /**
+     * Gets the number of cards of each value in a shoe made of <tt>deckCount</tt> full decks.
+     * @param deckCount the number of decks in the shoe
+     * @return an array indexed by card value (2-11, where 11 is an ace)
+     */
+    public static int[] getShoeValueCounts(int deckCount) {
+        final int[] valueCounts = new int[Card.ACE.getValue() + 1];
+        for (Card card : Card.values()) {
+            valueCounts[card.getValue()] += Deck.CARDS_PER_RANK * deckCount;
+        }
+
+        return valueCounts;
+    }
+
+    /**
+     * Gets the number of cards of each value in a full shoe under the given rules.
+     * @param rule the rules of the game
+     * @return an array indexed by card value (2-11, where 11 is an ace), or <tt>null</tt> for an infinite deck
+     */
+    static int[] getShoeValueCounts(Rule rule) {
+        return rule.isInfiniteDeck() ? null : getShoeValueCounts(rule.getDeckCount());
+    }
+
+    /**
+     * Gets the probability of drawing a card of a value from an infinite deck.
+     * @param value the value of the card (2-11, where 11 is an ace)
+     * @return the probability
+     */
+    static double getInfiniteDeckProbability(int value) {
+        // one in thirteen cards has each value, except that 10/J/Q/K all count as 10
+        return (value == Card.TEN.getValue() ? 4.0 : 1.0) / 13;
+    }
+
+    /**
+     * @param outcome an outcome index (0-4 for final totals of 17-21, or <tt>BUST</tt>)
+     * @return the probability of the outcome
+     */
+    public double getProbability(int outcome) {
+        return outcomeProbabilities[outcome];
+    }
+
+    /**
+     * Computes the expected value of standing on a total against this dealer.
+     * @param playerValue the value of the player's hand (at most 21)
+     * @return a double from -1 to 1 representing the average win amount
+     */
+    public double getStandValue(int playerValue) {
+        return standValues[playerValue];
+    }
+
+    private double computeStandValue(int playerValue) {
+        double value = outcomeProbabilities[BUST];
+        for (int dealerValue = 17; dealerValue <= 21; dealerValue++) {
+            if (playerValue > dealerValue) {
+                value += outcomeProbabilities[dealerValue - 17];
+            } else if (playerValue < dealerValue) {
+                value -= outcomeProbabilities[dealerValue - 17];
+            }
+        }
+
+        return value;
+    }
+
+    private static class Key {
+        private final int upCardValue;
+        private final boolean dealerHitsSoft17;
+        private final int[] valueCounts;
+
+        Key(int upCardValue, boolean dealerHitsSoft17, int[] valueCounts) {
+            this.upCardValue = upCardValue;
+            this.dealerHitsSoft17 = dealerHitsSoft17;
+            this.valueCounts = (valueCounts == null ? null : valueCounts.clone());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return upCardValue == other.upCardValue &&
+                    dealerHitsSoft17 == other.dealerHitsSoft17 &&
+                    Arrays.equals(valueCounts, other.valueCounts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(upCardValue, dealerHitsSoft17, Arrays.hashCode(valueCounts));
+        }
+    }
+
+    /**
+     * Plays out every way the dealer can finish a hand. Dealer hands are tracked as their hard value (aces count as 1)
+     * along with whether they hold an ace.
+     */
+    private static class Enumerator {
+        private final boolean dealerHitsSoft17;
+        private final int[] valueCounts;
+        private int cardsInShoe;
+
+        // for an infinite shoe, the outcome probabilities only depend on the hand, so they can be memoized
+        private final double[][][] infiniteShoeMemo;
+
+        Enumerator(boolean dealerHitsSoft17, int[] valueCounts) {
+            this.dealerHitsSoft17 = dealerHitsSoft17;
+
+            if (valueCounts == null) {
+                this.valueCounts = null;
+                this.infiniteShoeMemo = new double[2][22][];
+            } else {
+                this.valueCounts = valueCounts.clone();
+                this.infiniteShoeMemo = null;
+
+                for (int count : valueCounts) {
+                    cardsInShoe += count;
+                }
+            }
+        }
+
+        void enumerate(int upCardValue, double[] outcomes) {
+            removeCard(upCardValue);
+
+            // the dealer checks for a Blackjack, so we only consider second cards that do not make one
+            int blackjackCardValue = 0;
+            if (upCardValue == Card.ACE.getValue()) {
+                blackjackCardValue = Card.TEN.getValue();
+            } else if (upCardValue == Card.TEN.getValue()) {
+                blackjackCardValue = Card.ACE.getValue();
+            }
+
+            final double blackjackProbability = (blackjackCardValue == 0 ? 0 : getDrawProbability(blackjackCardValue));
+            final int upCardHardValue = (upCardValue == Card.ACE.getValue() ? 1 : upCardValue);
+            final boolean upCardIsAce = (upCardValue == Card.ACE.getValue());
+
+            for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                final double drawProbability = getDrawProbability(value);
+                if (value == blackjackCardValue || drawProbability == 0) {
+                    continue;
+                }
+
+                final double probability = drawProbability / (1 - blackjackProbability);
+                removeCard(value);
+                addOutcomes(upCardHardValue + getHardValue(value), upCardIsAce || value == Card.ACE.getValue(),
+                        probability, outcomes);
+                putCardBack(value);
+            }
+        }
+
+        private void addOutcomes(int hardValue, boolean hasAce, double probability, double[] outcomes) {
+            final boolean isSoft = hasAce && hardValue + 10 <= 21;
+            final int handValue = (isSoft ? hardValue + 10 : hardValue);
+
+            if (handValue > 21) {
+                outcomes[BUST] += probability;
+                return;
+            } else if (handValue > 17 || (handValue == 17 && !(isSoft && dealerHitsSoft17))) {
+                outcomes[handValue - 17] += probability;
+                return;
+            }
+
+            if (valueCounts == null) {
+                final double[] memo = getInfiniteShoeOutcomes(hardValue, hasAce);
+                for (int i = 0; i < OUTCOME_COUNT; i++) {
+                    outcomes[i] += probability * memo[i];
+                }
+                return;
+            }
+
+            for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                if (valueCounts[value] == 0) {
+                    continue;
+                }
+
+                final double drawProbability = getDrawProbability(value);
+                removeCard(value);
+                addOutcomes(hardValue + getHardValue(value), hasAce || value == Card.ACE.getValue(),
+                        probability * drawProbability, outcomes);
+                putCardBack(value);
+            }
+        }
+
+        private double[] getInfiniteShoeOutcomes(int hardValue, boolean hasAce) {
+            final int aceIndex = (hasAce ? 1 : 0);
+            if (infiniteShoeMemo[aceIndex][hardValue] == null) {
+                final double[] outcomes = new double[OUTCOME_COUNT];
+                for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                    addOutcomes(hardValue + getHardValue(value), hasAce || value == Card.ACE.getValue(),
+                            getDrawProbability(value), outcomes);
+                }
+                infiniteShoeMemo[aceIndex][hardValue] = outcomes;
+            }
+
+            return infiniteShoeMemo[aceIndex][hardValue];
+        }
+
+        private static int getHardValue(int cardValue) {
+            return (cardValue == Card.ACE.getValue() ? 1 : cardValue);
+        }
+
+        private double getDrawProbability(int value) {
+            if (valueCounts == null) {
+                return getInfiniteDeckProbability(value);
+            }
+
+            return (double) valueCounts[value] / cardsInShoe;
+        }
+
+        private void removeCard(int value) {
+            if (valueCounts != null) {
+                valueCounts[value] -= 1;
+                cardsInShoe -= 1;
+            }
+        }
+
+        private void putCardBack(int value) {
+            if (valueCounts != null) {
+                valueCounts[value] += 1;
+                cardsInShoe += 1;
+            }
+        }
+    }
+}
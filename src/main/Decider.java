@@ -2,30 +2,119 @@ package main;
 
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.LongAdder;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * Created by Brian on 1/17/2017.
  */
 public class Decider {
-    private static final int STATUS_UPDATE_INTERVAL = 500;
+    // the number of trials that a single task simulates before work is split across threads
+    private static final int TRIALS_PER_TASK = 10000;
+
+    // in EvaluationMode.ADAPTIVE, the number of trials simulated before the first check of whether the best decision
+    // is settled. Every later round doubles the number of trials so far.
+    private static final int ADAPTIVE_FIRST_ROUND_TRIALS = 1000;
+
+    /**
+     * The default number of standard errors that confidence intervals span on either side of a mean.
+     */
+    public static final double DEFAULT_CONFIDENCE_BOUND = 3.0;
+
+    // the decisions that EvaluationMode.COMMON_RANDOM_NUMBERS simulates together. Standing comes from the dealer
+    // outcome tables and splitting from the expected values of the hands that it makes, so neither is simulated.
+    private static final Decision[] SIMULATED_DECISIONS = {Decision.HIT, Decision.DOUBLE};
+
+    // the lowest hard total that cannot become a soft hand by taking a card, since an ace then counts as 1
+    private static final int MIN_HARD_VALUE_WITHOUT_SOFT_HITS = 11;
+
+    // the most dealer outcome tables for the player's cards that are cached at once (each holds a few dozen doubles)
+    private static final int HAND_DEALER_OUTCOME_TABLE_CAPACITY = 1 << 16;
 
     private static final int threadCount = Runtime.getRuntime().availableProcessors();
-    private static final ExecutorService executor = Executors.newCachedThreadPool();
-    private LongAdder currentSimulationNum = new LongAdder();
+    private static final ForkJoinPool defaultPool = new ForkJoinPool(threadCount);
+    private final DeciderMetrics metrics = new DeciderMetrics();
+
+    // memoized expected values, indexed by getMemoKey(scenarioIndex, decision) of the canonical scenario (see
+    // ScenarioEquivalence). A task is stored as soon as it is created so that concurrent requests for the same entry
+    // join that task instead of starting another.
+    private final AtomicReferenceArray<ForkJoinTask<Double>> expectedValueMemo =
+            new AtomicReferenceArray<>(ScenarioIndex.SIZE * Decision.values().length);
+
+    // in EvaluationMode.COMMON_RANDOM_NUMBERS, the tasks that simulate every decision under a scenario on the same
+    // hands, indexed by scenario index. Each task's result is indexed by decision ordinal.
+    private final AtomicReferenceArray<ForkJoinTask<double[]>> commonTrialsMemo =
+            new AtomicReferenceArray<>(ScenarioIndex.SIZE);
+
+    // in EvaluationMode.ALL_UP_CARDS, the tasks that simulate every decision of a chart row against every up-card on
+    // the same hands, indexed by the scenario index of the row against a two (see getRowIndex)
+    private final AtomicReferenceArray<ForkJoinTask<UpCardTrialStatistics>> upCardTrialsMemo =
+            new AtomicReferenceArray<>(ScenarioIndex.SIZE);
+
+    // the statistics of the trials run by the tasks in commonTrialsMemo, indexed by scenario index, which keep the
+    // covariances between the decisions
+    private final AtomicReferenceArray<TrialStatistics> commonTrialStatistics =
+            new AtomicReferenceArray<>(ScenarioIndex.SIZE);
+
+    // the confidence intervals of simulated expected values, indexed like expectedValueMemo
+    private final AtomicReferenceArray<Estimate> estimateMemo =
+            new AtomicReferenceArray<>(ScenarioIndex.SIZE * Decision.values().length);
+
+    // memoized results of computeExpectedValues, indexed by scenario index
+    private final AtomicReferenceArray<Map<Decision, Double>> scenarioExpectedValues =
+            new AtomicReferenceArray<>(ScenarioIndex.SIZE);
+
+    // memoized best decisions once the player has taken a card (no doubling down or surrendering), indexed by
+    // scenario index
+    private final AtomicReferenceArray<Decision> bestPlayDecisions = new AtomicReferenceArray<>(ScenarioIndex.SIZE);
+
+    // the asynchronous requests for computeExpectedValues that are queued or running, indexed by scenario index, so
+    // that concurrent requests for the same scenario share one solve
+    private final AtomicReferenceArray<AsyncSolve> asyncSolves = new AtomicReferenceArray<>(ScenarioIndex.SIZE);
 
-    private List<Runnable> statusListeners;
-    private Map<Scenario, Semaphore> hitSemaphoreMap = new HashMap<>();
-    private Map<Scenario, Semaphore> standSemaphoreMap = new HashMap<>();
-    private Map<Scenario, Semaphore> splitSemaphoreMap = new HashMap<>();
-    private Map<Scenario, Semaphore> doubleSemaphoreMap = new HashMap<>();
+    // the threads that simulate hands
+    private final ForkJoinPool pool;
 
     // rules
     private Rule rule;
 
     // other params
     private int simulationCount;
+    private EvaluationMode evaluationMode;
+    private double confidenceBound;
+    private long seed;
+    private ExactEvaluator exactEvaluator;
+    private HandGenerator handGenerator;
+    private final ScenarioEquivalence equivalence;
+
+    // where simulated expected values are kept between runs, if anywhere, and the key they are kept under
+    private ExpectedValueStore store;
+    private long storeKey;
+
+    // distributions of the dealer's final total, indexed by the value of his up-card
+    private final DealerOutcomeTable[] dealerOutcomeTables = new DealerOutcomeTable[Card.ACE.getValue() + 1];
+
+    // the composition of a full shoe, indexed by card value, or null for an infinite deck
+    private int[] shoeValueCounts;
+
+    // with a finite shoe, the dealer's outcome tables once the up-card and the player's cards are gone, keyed by the
+    // CompositionKey of the player's cards and the up-card. Far more compositions than scenarios can be reached, so
+    // the least recently used table is evicted once the cache is full.
+    private final Map<Long, DealerOutcomeTable> handDealerOutcomeTables = Collections.synchronizedMap(
+            new LinkedHashMap<Long, DealerOutcomeTable>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, DealerOutcomeTable> eldest) {
+                    return size() > HAND_DEALER_OUTCOME_TABLE_CAPACITY;
+                }
+            });
+
+    // with a finite shoe, the expected values of standing on the hands dealt for a scenario, indexed by the scenario
+    // index of the canonical scenario
+    private final AtomicReferenceArray<Double> expectedStandValues = new AtomicReferenceArray<>(ScenarioIndex.SIZE);
 
     /**
      * Constructor.
@@ -37,31 +126,87 @@ public class Decider {
      * @throws IllegalStateException if the ExecutorService used to generate hands has been shut down
      */
     public Decider(Rule rule, int simulationCount) {
-        if (executor.isShutdown()) {
-            throw new IllegalStateException("ExecutorService has been shut down already");
+        this(rule, simulationCount, EvaluationMode.SIMULATION);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rule the rules of the game
+     * @param simulationCount the number of hands to simulate per decision (ignored by <tt>EvaluationMode.EXACT</tt>)
+     * @param evaluationMode how expected values are computed
+     * @throws IllegalStateException if the ForkJoinPool used to generate hands has been shut down
+     */
+    public Decider(Rule rule, int simulationCount, EvaluationMode evaluationMode) {
+        this(rule, simulationCount, evaluationMode, DEFAULT_CONFIDENCE_BOUND);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rule the rules of the game
+     * @param simulationCount the number of hands to simulate per decision (ignored by <tt>EvaluationMode.EXACT</tt>).
+     *                        In <tt>EvaluationMode.ADAPTIVE</tt>, this is the most hands to simulate per scenario.
+     * @param evaluationMode how expected values are computed
+     * @param confidenceBound the number of standard errors that confidence intervals span on either side of a mean
+     * @throws IllegalStateException if the ForkJoinPool used to generate hands has been shut down
+     */
+    public Decider(Rule rule, int simulationCount, EvaluationMode evaluationMode, double confidenceBound) {
+        this(rule, simulationCount, evaluationMode, confidenceBound, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rule the rules of the game
+     * @param simulationCount the number of hands to simulate per decision (ignored by <tt>EvaluationMode.EXACT</tt>).
+     *                        In <tt>EvaluationMode.ADAPTIVE</tt>, this is the most hands to simulate per scenario.
+     * @param evaluationMode how expected values are computed
+     * @param confidenceBound the number of standard errors that confidence intervals span on either side of a mean
+     * @param seed the seed of every random number used in simulation. Deciders with the same rules, settings, and
+     *             seed compute identical expected values, no matter how many threads run the simulation.
+     * @throws IllegalStateException if the ForkJoinPool used to generate hands has been shut down
+     */
+    public Decider(Rule rule, int simulationCount, EvaluationMode evaluationMode, double confidenceBound, long seed) {
+        this(rule, simulationCount, evaluationMode, confidenceBound, seed, defaultPool);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rule the rules of the game
+     * @param simulationCount the number of hands to simulate per decision (ignored by <tt>EvaluationMode.EXACT</tt>).
+     *                        In <tt>EvaluationMode.ADAPTIVE</tt>, this is the most hands to simulate per scenario.
+     * @param evaluationMode how expected values are computed
+     * @param confidenceBound the number of standard errors that confidence intervals span on either side of a mean
+     * @param seed the seed of every random number used in simulation
+     * @param pool the threads that simulate hands, which the caller shuts down when it is through with them
+     * @throws IllegalStateException if <tt>pool</tt> has been shut down
+     */
+    Decider(Rule rule, int simulationCount, EvaluationMode evaluationMode, double confidenceBound, long seed,
+            ForkJoinPool pool) {
+        if (pool.isShutdown()) {
+            throw new IllegalStateException("ForkJoinPool has been shut down already");
         }
 
+        this.pool = pool;
         this.rule = rule;
         this.simulationCount = simulationCount;
+        this.evaluationMode = evaluationMode;
+        this.confidenceBound = confidenceBound;
+        this.seed = seed;
+        this.equivalence = new ScenarioEquivalence(rule);
 
-        // init the semaphore maps
-        // some don't make sense and are never used, but let's go with it
-        for (int playerValue = 4; playerValue <= 21; playerValue++) {
-            for (Card dealerCard : Card.values()) {
-                for (boolean isPlayerSoft : new boolean[]{true, false}) {
-                    for (boolean isPair : new boolean[]{true, false}) {
-                        final Scenario scenario = new Scenario();
-                        scenario.playerValue = playerValue;
-                        scenario.dealerCard = dealerCard;
-                        scenario.isPlayerSoft = isPlayerSoft;
-                        scenario.isPair = isPair;
-
-                        hitSemaphoreMap.put(scenario, new Semaphore(1));
-                        standSemaphoreMap.put(scenario, new Semaphore(1));
-                        splitSemaphoreMap.put(scenario, new Semaphore(1));
-                        doubleSemaphoreMap.put(scenario, new Semaphore(1));
-                    }
-                }
+        if (evaluationMode == EvaluationMode.EXACT) {
+            exactEvaluator = new ExactEvaluator(rule);
+        } else {
+            handGenerator = HandGenerator.get(rule);
+
+            // the cards burned to the cut card are random, so they do not change what the dealer draws, but the up-card
+            // and the player's cards do. With an infinite deck, nothing changes what the dealer draws.
+            shoeValueCounts = DealerOutcomeTable.getShoeValueCounts(rule);
+            for (int upCardValue = Card.TWO.getValue(); upCardValue <= Card.ACE.getValue(); upCardValue++) {
+                dealerOutcomeTables[upCardValue] = DealerOutcomeTable.get(Card.getCardWithValue(upCardValue), rule);
             }
         }
     }
@@ -71,379 +216,1023 @@ public class Decider {
      * using deciders.
      */
     public static void shutDownThreads() {
-        executor.shutdownNow();
+        defaultPool.shutdownNow();
     }
 
-    public Future<?> addStatusListener(Consumer<Long> listener) {
-        return executor.submit(() -> {
-            long lastSimulationNum = currentSimulationNum.longValue();
-            while (true) {
-                final long difference = (long) Math.floor((1000.0 / STATUS_UPDATE_INTERVAL) * (currentSimulationNum.longValue() - lastSimulationNum));
-                listener.accept(difference);
-                lastSimulationNum = currentSimulationNum.longValue();
-                Thread.sleep(STATUS_UPDATE_INTERVAL);
-            }
-        });
+    /**
+     * @return the counters of the work done by this decider, which also notify progress listeners
+     */
+    public DeciderMetrics getMetrics() {
+        return metrics;
     }
 
     /**
-     * Generates a random shoe-player pair that corresponds with the setup given by the provided scenario
-     * (player hand value/softness, dealer card, and whether the hand is a pair). All pairs generated should appear as
-     * likely as they would in a normal game of Blackjack. Like in actual play, the dealer's card affects the outcome
-     * of all cards beyond the player's first.
-     *
-     * @param scenario the scenario to generate a random hand for
-     * @return a shoe-player pair that corresponds with the scenario
-     * @throws InterruptedException if a thread used to generate a hand is interrupted
-     * @throws ExecutionException if a thread throws an exception for some reason
+     * @return the seed of every random number used in simulation, which reproduces this decider's results when passed
+     * to a new one
      */
-    private Pair<Shoe, Player> getShoePlayerPair(Scenario scenario) throws InterruptedException, ExecutionException, Exception {
-        final int targetValue = scenario.playerValue;
-        final Card dealerCard = scenario.dealerCard;
-        final boolean targetIsSoft = scenario.isPlayerSoft;
-
-        final Shoe shoe = new Shoe(rule.getDeckCount(), rule.getPenetrationValue());
-        final Player player = new Player(shoe);
-
-        final Callable<?> resetTask = () -> {
-            player.resetHand();
-            shoe.rebuildShoe();
+    public long getSeed() {
+        return seed;
+    }
 
-            if (targetIsSoft) {
-                player.addCard(Card.ACE);
-                shoe.removeCard(Card.ACE);
-            }
+    /**
+     * Loads every expected value that <tt>store</tt> holds under <tt>storeKey</tt> into the memo, and appends each
+     * expected value simulated from now on. This is called by <tt>DeciderBuilder</tt> right after construction, before
+     * anything is simulated. Expected values are never stored in <tt>EvaluationMode.EXACT</tt>.
+     * @param store the store
+     * @param storeKey the key of this decider's rules and settings (see <tt>ExpectedValueStore.getKey</tt>)
+     */
+    void useStore(ExpectedValueStore store, long storeKey) {
+        if (evaluationMode == EvaluationMode.EXACT) {
+            return;
+        }
 
-            // to appease the Java overlords
-            return Optional.empty();
-        };
+        this.store = store;
+        this.storeKey = storeKey;
 
-        resetTask.call();
+        // later entries replace earlier ones
+        for (ExpectedValueStore.Entry entry : store.getEntries(storeKey)) {
+            final int canonicalIndex = equivalence.getCanonicalIndex(entry.getScenarioIndex(), entry.getDecision());
+            final int memoKey = getMemoKey(canonicalIndex, entry.getDecision());
+            final DecisionTask task = new DecisionTask(entry.getDecision(), canonicalIndex);
+            task.complete(entry.getEstimate().getMean());
 
-        while (player.getHandValue() != targetValue || player.handIsSoft() != targetIsSoft) {
-            final int currentHandValue = player.getHandValue();
-            final boolean isCurrentlySoft = player.handIsSoft();
+            expectedValueMemo.set(memoKey, task);
+            estimateMemo.set(memoKey, entry.getEstimate());
+        }
+    }
 
-            // Explanation: we can build a hand of value |currentHandValue| to one of value |targetValue|
-            // by noting that we can usually pick a random card whose value is at most |targetValue| - |currentHandValue|.
-            // There are some exceptions to this, however.
-            // (i) If |targetValue| < 11 and |targetValue| - |currentHandValue| = 1, building isn't possible
-            // (e.g., a hard 9 cannot become a hard 10, as adding an ace to a hard 9 makes a soft 20)
-            // (ii) If |isCurrentlySoft| is true and |targetIsSoft| is false, we can take any card that
-            // results in either another soft hand or one that tips the new value <= |targetValue|. (see the if statement)
-            Card randomCard = null;
-            if (targetValue < 11 && targetValue == currentHandValue + 1) { // scenario (i): impossible to build
-                // start over
-                resetTask.call();
-                continue;
-            } else if (targetValue == currentHandValue + 1) {
-                randomCard = Card.ACE;
-            } else if (isCurrentlySoft && !targetIsSoft) { // scenario (ii)
-                if (currentHandValue > targetValue) {
-                    // Suppose that you want to generate a hard T from a soft X hand, X > T and T > 11. If you draw a
-                    // card with value V such that X + V > 21 (i.e., the hand becomes hard), the resulting
-                    // hand is a hard X + V - 10. Thus, X + V - 10 <= T and so V <= T - X + 10.
-                    // For example, to generate a hard 13 from a soft 19 we can only randomly pick a card V among those
-                    // whose values are <= 13 - 19 + 10 = 4 (Ace, 2, 3, and 4).
-                    final int maxRandomCardValue = targetValue - currentHandValue + 10;
-
-                    if (maxRandomCardValue < 1) { // impossible
-                        resetTask.call();
-                        continue;
-                    }
+    /**
+     * Appends newly simulated expected values to the store, if there is one.
+     * @param scenarioIndex the index of the scenario
+     * @param estimates the estimate of each simulated decision
+     */
+    private void storeEstimates(int scenarioIndex, Map<Decision, Estimate> estimates) {
+        if (store != null) {
+            store.append(storeKey, scenarioIndex, estimates);
+        }
+    }
 
-                    randomCard = shoe.removeCardWithMaxValue(maxRandomCardValue);
-                } else {
-                    randomCard = shoe.removeTopCard();
-                }
-            } else {
-                final int maxRandomCardValue = targetValue - currentHandValue;
-                randomCard = shoe.removeCardWithMaxValue(maxRandomCardValue);
-            }
+    /**
+     * @return the number of hands simulated by this decider so far
+     */
+    long getSimulatedHandCount() {
+        return metrics.getHandCount();
+    }
 
-            player.addCard(randomCard);
-        }
+    /**
+     * Generates a random shoe-player pair that corresponds with the setup given by the provided scenario
+     * (player hand value/softness, dealer card, and whether the hand is a pair). All pairs generated should appear as
+     * likely as they would in a normal game of Blackjack. The dealer's card is taken out of the shoe before the
+     * player's cards are drawn (see <tt>HandGenerator</tt>). The hand is dealt with a random stream derived from
+     * this decider's seed, the scenario, and the trial number, so the same arguments always deal the same hand, no
+     * matter which thread asks for it or in what order.
+     *
+     * @param scenario the scenario to generate a random hand for
+     * @param trial the number of the trial that the hand is dealt for
+     * @return a shoe-player pair that corresponds with the scenario
+     */
+    Pair<Shoe, Player> getShoePlayerPair(Scenario scenario, int trial) {
+        final long dealSeed = getTrialSeed(new Decision[0], ScenarioIndex.of(scenario), trial);
+        final Shoe shoe = Shoe.create(rule, new SplittableRandom(dealSeed));
+        final Player player = new Player(shoe);
+        handGenerator.deal(scenario, shoe, player);
 
         return new Pair<>(shoe, player);
     }
 
     /**
-     * Builds a scenario (an encapsulation of the player's hand total and the dealer's up-card)
-     * given a player and dealer.
+     * Gets the index of the scenario (an encapsulation of the player's hand total and the dealer's up-card) that a
+     * player faces after taking a card.
      * @param player the player of the scenario
-     * @param dealer the dealer of the scenario
-     * @return a <tt>Scenario</tt> that encapsulates the state of the player and dealer
+     * @param dealerCard the dealer's up-card
+     * @return the index of the scenario that encapsulates the state of the player and dealer
      */
-    private Scenario buildScenario(Player player, Player dealer) {
-        final Scenario scenario = new Scenario();
-        scenario.playerValue = player.getHandValue();
-        scenario.dealerCard = Card.getCardWithValue(dealer.getHandValue());
-        scenario.isPlayerSoft = player.handIsSoft();
-        scenario.isPair = false; // for now
-
-        return scenario;
+    private static int getScenarioIndex(Player player, Card dealerCard) {
+        // 10/J/Q/K all play the same, so use one of them to share memoized results
+        final Card representativeDealerCard = Card.getCardWithValue(dealerCard.getValue());
+        return ScenarioIndex.of(player.getHandValue(), representativeDealerCard, player.handIsSoft(), false); // not a pair for now
     }
 
     /**
-     * A helper function that returns whether two cards represent a Blackjack
-     * @param card1 the first card
-     * @param card2 the second card
-     * @return true if <tt>card1</tt> and <tt>card2</tt> make a Blackjack, and false otherwise.
+     * Gets the best decision under a scenario after the player has taken a card. At that point he can no longer
+     * double down or surrender, and the hand is not a pair, so the choice is between hitting and standing.
+     * @param scenarioIndex the index of the scenario
+     * @return the best decision
      */
-    private boolean isBlackjackPair(Card card1, Card card2) {
-        return ((card1.equals(Card.ACE) && card2.getValue() == 10) ||
-                (card1.getValue() == 10 && card2.equals(Card.ACE)));
+    private Decision getBestPlayDecision(int scenarioIndex) {
+        Decision bestDecision = bestPlayDecisions.get(scenarioIndex);
+        if (bestDecision == null) {
+            final Scenario scenario = ScenarioIndex.toScenario(scenarioIndex);
+            bestDecision = (getExpectedHitValue(scenario) > getExpectedStandValue(scenario))
+                    ? Decision.HIT
+                    : Decision.STAND;
+            bestPlayDecisions.set(scenarioIndex, bestDecision);
+        }
+
+        return bestDecision;
     }
 
     /**
-     * Performs a simulation of what occurs when a player stands and the dealer plays out his hand.
+     * Computes the expected value of a player standing on his hand against the dealer's up-card. The dealer's final
+     * total is not simulated; instead, the expected value comes from the cached distribution of final dealer totals
+     * for the cards left once the up-card and the player's cards are gone.
      * @param player the player who is standing on his hand
-     * @param dealer the dealer
-     * @param shoe the shoe that the player and dealer are using
-     * @return the result of standing (win, lose, push) under this simulation
-     */
-    private PlayResult simulateStanding(Player player, Player dealer, Shoe shoe) {
-        // if the dealer has an Ace or a 10-valued card, the card at the top of the shoe cannot give him a blackjack
-        // if the top card yields a BJ, shuffle the shoe until it no longer does
-        final Card firstDealerCard = dealer.getCards().get(0); // the dealer only has one card right now
-        Card secondDealerCard = shoe.removeTopCard();
-        while (isBlackjackPair(firstDealerCard, secondDealerCard)) {
-            shoe.putCardBack(secondDealerCard);
-            secondDealerCard = shoe.removeTopCard();
-        }
-
-        // give the dealer his second card
-        dealer.addCard(secondDealerCard);
-
-        // play out the dealer's hand
-        while (dealer.getHandValue() < 17 ||
-                (dealer.getHandValue() == 17 && dealer.handIsSoft() && rule.dealerHitsSoft17())) {
-            dealer.hit();
-        }
-
-        // determine the result
-        final int finalDealerValue = dealer.getHandValue();
-        final int playerValue = player.getHandValue();
-        if (playerValue > finalDealerValue || finalDealerValue > 21) {
-            return PlayResult.WIN;
-        } else if (playerValue < finalDealerValue) {
-            return PlayResult.LOSE;
-        } else {
-            return PlayResult.PUSH;
+     * @param dealerCard the dealer's up-card
+     * @return a double from -1 to 1 representing the average win amount
+     */
+    private double getStandValue(Player player, Card dealerCard) {
+        if (shoeValueCounts == null) {
+            return dealerOutcomeTables[dealerCard.getValue()].getStandValue(player.getHandValue());
         }
+
+        final long handKey = CompositionKey.setDealerCard(player.getCompositionKey(), dealerCard.getValue());
+        return getDealerOutcomeTable(handKey).getStandValue(player.getHandValue());
+    }
+
+    /**
+     * Gets the outcome table of the dealer when he draws from a finite shoe without the up-card and the player's
+     * cards. The cards burned to the cut card are random, so they do not change the dealer's draws.
+     * @param handKey the <tt>CompositionKey</tt> of the player's cards (and any card split away) and the up-card
+     * @return the outcome table, which is computed again if it was evicted from the cache
+     */
+    private DealerOutcomeTable getDealerOutcomeTable(long handKey) {
+        DealerOutcomeTable table = handDealerOutcomeTables.get(handKey);
+        if (table == null) {
+            // the up-card is left in, since DealerOutcomeTable removes it
+            final int[] valueCounts = shoeValueCounts.clone();
+            for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                valueCounts[value] -= CompositionKey.getCount(handKey, value);
+            }
+            final int splitCardValue = CompositionKey.getSplitCardValue(handKey);
+            if (splitCardValue != 0) {
+                valueCounts[splitCardValue] -= 1;
+            }
+
+            final Card dealerCard = Card.getCardWithValue(CompositionKey.getDealerCardValue(handKey));
+            table = DealerOutcomeTable.compute(dealerCard, rule.dealerHitsSoft17(), valueCounts);
+            final DealerOutcomeTable existingTable = handDealerOutcomeTables.putIfAbsent(handKey, table);
+            if (existingTable != null) {
+                table = existingTable;
+            }
+        }
+
+        return table;
     }
 
     /**
      * Performs a simulation of what occurs when a player makes the best decisions when playing his hand.
      * @param player the player
-     * @param dealer the dealer
+     * @param dealerCard the dealer's up-card
      * @param shoe the shoe that the player and dealer are using
-     * @return the result of perfect play (win, lose, push) under this simulation
+     * @return the expected win amount of perfect play under this simulation
      */
-    private PlayResult simulateBestPlay(Player player, Player dealer, Shoe shoe) throws Exception {
-        final Scenario scenario = buildScenario(player, dealer);
-        final Decision bestDecision = computeBestScenarioResult(scenario, false, false).get(Decision.class);
+    private double simulateBestPlay(Player player, Card dealerCard, Shoe shoe) {
+        final Decision bestDecision = getBestPlayDecision(getScenarioIndex(player, dealerCard));
 
         switch (bestDecision) {
             case HIT:
                 player.hit();
 
                 if (player.getHandValue() > 21) {
-                    return PlayResult.LOSE;
+                    return PlayResult.LOSE.getWinAmount();
                 } else {
-                    return simulateBestPlay(player, dealer, shoe);
+                    return simulateBestPlay(player, dealerCard, shoe);
                 }
             case STAND:
-                return simulateStanding(player, dealer, shoe);
+                return getStandValue(player, dealerCard);
             default:
-                return null; // other decisions will come later
+                throw new IllegalStateException("Unexpected decision " + bestDecision); // other decisions will come later
         }
 
     }
 
     /**
-     * Performs at least <tt>simulationCount</tt> simulations of a given <tt>scenario</tt> (an encapsulation of the
-     * player's hand total and the dealer's up-card) given that the first decision made is <tt>decision</tt>. Once that
-     * decision is made, further moves are made with perfect play (by induction). This method takes a <tt>Semaphore</tt>
-     * that is acquired during the computation and released afterwards. It also takes a memoization <tt>Map</tt> that is
-     * updated with the result.
+     * Computes the expected value of a given <tt>scenario</tt> (an encapsulation of the player's hand total and the
+     * dealer's up-card) given that the first decision made is <tt>decision</tt>, memoizing the result. If the value is
+     * already being computed, this joins that computation instead of repeating it.
      * @param decision the player's initial decision to make with his hand
      * @param scenario the initial scenario (an encapsulation of the player's hand total
      * and the dealer's up-card)
-     * @param map the map to put the computed result in
-     * @param semaphore the semaphore to acquire during the computation
      * @return the expected value of a given scenario given that the first decision made is <tt>decision</tt> and
      * perfect play follows.
-     * @throws Exception
      */
-    private Double getExpectedDecisionValue(Decision decision, Scenario scenario, Map<Scenario, Double> map, Semaphore semaphore) throws Exception {
-        semaphore.acquire();
-
-        if (map.containsKey(scenario)) {
-            semaphore.release();
-            return map.get(scenario);
-        }
-
-        final Callable<Double> task = () -> {
-            double unitsWon = 0;
-            for (int i = 0; i < Math.ceil(simulationCount / threadCount); i++) {
-                currentSimulationNum.increment();
-
-                // generate a random shoe and player hand under this scenario
-                final Pair<Shoe, Player> shoePlayerPair = getShoePlayerPair(scenario);
-                final Shoe shoe = shoePlayerPair.get(Shoe.class);
-                final Player player = shoePlayerPair.get(Player.class);
-                final Player dealer = new Player(shoe);
-                final Card dealerCard = scenario.dealerCard;
-                dealer.addCard(dealerCard);
-
-                switch (decision) {
-                    case HIT:
-                        // take a hit
-                        player.hit();
-
-                        if (player.getHandValue() > 21) {
-                            unitsWon -= 1;
-                        } else {
-                            // inductive step: simulate best play on the new hand
-                            final PlayResult bestPlayResult = simulateBestPlay(player, dealer, shoe);
-                            unitsWon += bestPlayResult.getWinAmount();
-                        }
-
-                        break;
-                    case STAND:
-                        // play out the dealer
-                        final PlayResult result = simulateStanding(player, dealer, shoe);
-                        unitsWon += result.getWinAmount();
-                        break;
-                    case DOUBLE:
-                        // have the player take one more card and then stand
-                        player.hit();
-
-                        if (player.getHandValue() > 21) {
-                            unitsWon -= 2;
-                        } else {
-                            final PlayResult bestPlayResult = simulateStanding(player, dealer, shoe);
-                            unitsWon += 2 * bestPlayResult.getWinAmount();
-                        }
-
-                        break;
-                    case SPLIT:
-                        // we need to reset the shoe
-                        shoe.rebuildShoe();
-
-                        // get the correct player card
-                        final Card playerCard = (scenario.playerValue == 12 && scenario.isPlayerSoft)
-                                ? Card.ACE // a soft 12 is a pair of aces
-                                : Card.getCardWithValue(scenario.playerValue / 2);
-                        shoe.removeCard(playerCard);
-                        shoe.removeCard(playerCard);
-                        shoe.removeCard(dealerCard);
-
-                        // set up the list of player hands
-                        // note: splitting two X's results in two hands with one X in each of them
-                        final List<Player> playerHands = new ArrayList<>();
-                        final Player playerHand1 = new Player(shoe);
-                        final Player playerHand2 = new Player(shoe);
-                        playerHand1.addCard(playerCard);
-                        playerHand2.addCard(playerCard);
-                        playerHands.add(playerHand1);
-                        playerHands.add(playerHand2);
-
-                        // process the hands, splitting new pairs as needed
-                        final Stack<Player> handStack = new Stack<>();
-                        handStack.push(playerHand1);
-                        handStack.push(playerHand2);
-
-                        int handCount = 2; // since we already split once to two hands
-                        while (!handStack.isEmpty()) {
-                            final Player playerHand = handStack.pop();
-
-                            // get a second card for this hand
-                            final Card topCard = shoe.removeTopCard();
-
-                            // note: check topCard.getValue() == playerCard.getValue() instead of
-                            // topCard.equals(playerCard) for 10/J/Q/K in particular
-                            if (topCard.getValue() == playerCard.getValue() &&
-                                    handCount < rule.getMaxSplitHands() && !playerCard.equals(Card.ACE)) {
-                                // split the hand
-                                final Player newPlayerHand = new Player(shoe);
-                                newPlayerHand.addCard(topCard);
-                                playerHands.add(newPlayerHand);
-                                handStack.push(newPlayerHand);
-                                handStack.push(playerHand); // we are not done processing |playerHand|
-                                handCount += 1;
-                            } else {
-                                playerHand.addCard(topCard);
-                            }
-                        }
-
-                        // play out the hands
-                        for (Player playerHand : playerHands) {
-                            final Scenario handScenario = buildScenario(playerHand, dealer);
-                            final double handUnitsWon = playerCard.equals(Card.ACE)
-                                    ? getExpectedStandValue(handScenario) // if we split aces, we cannot take more cards
-                                    : computeBestScenarioResult(handScenario, true, false).get(Double.class);
-                            unitsWon += handUnitsWon;
-                        }
-
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unknown decision " + decision);
+    private double getExpectedDecisionValue(Decision decision, Scenario scenario) {
+        final long startTime = System.nanoTime();
+        final double expectedValue = getDecisionTask(decision, ScenarioIndex.of(scenario)).join();
+        metrics.recordLatency(decision, System.nanoTime() - startTime);
+
+        return expectedValue;
+    }
+
+    /**
+     * Gets the task that computes the expected value of a decision under a scenario, starting it if no such task
+     * exists yet. Scenarios that share the expected value (see <tt>ScenarioEquivalence</tt>) share the task, which
+     * computes the value of the canonical scenario.
+     * @param decision the player's initial decision to make with his hand
+     * @param scenarioIndex the index of the initial scenario
+     * @return the (possibly completed) task
+     */
+    private ForkJoinTask<Double> getDecisionTask(Decision decision, int scenarioIndex) {
+        final int canonicalIndex = equivalence.getCanonicalIndex(scenarioIndex, decision);
+        return getOrStartTask(expectedValueMemo, getMemoKey(canonicalIndex, decision),
+                () -> new DecisionTask(decision, canonicalIndex));
+    }
+
+    /**
+     * Gets the confidence interval of a simulated expected value.
+     * @param decision the player's initial decision to make with his hand
+     * @param scenarioIndex the index of the initial scenario
+     * @return the estimate, or null if the value has not been simulated
+     */
+    private Estimate getEstimate(Decision decision, int scenarioIndex) {
+        return estimateMemo.get(getMemoKey(equivalence.getCanonicalIndex(scenarioIndex, decision), decision));
+    }
+
+    /**
+     * Gets the task that simulates every decision under a scenario on the same hands, starting it if no such task
+     * exists yet.
+     * @param scenarioIndex the index of the initial scenario
+     * @return the (possibly completed) task
+     */
+    private ForkJoinTask<double[]> getCommonTrialsTask(int scenarioIndex) {
+        return getOrStartTask(commonTrialsMemo, scenarioIndex, () -> new CommonTrialsTask(scenarioIndex));
+    }
+
+    /**
+     * Gets the task that simulates every decision of a chart row against every up-card on the same hands, starting it
+     * if no such task exists yet.
+     * @param rowIndex the index of the row (see <tt>getRowIndex</tt>)
+     * @return the (possibly completed) task
+     */
+    private ForkJoinTask<UpCardTrialStatistics> getUpCardTrialsTask(int rowIndex) {
+        return getOrStartTask(upCardTrialsMemo, rowIndex, () -> new UpCardTrialsTask(rowIndex));
+    }
+
+    /**
+     * Gets the index of the chart row that a scenario is in, which is the index of the same player hand against a two.
+     * @param scenarioIndex the index of the scenario
+     * @return the index of the row
+     */
+    private static int getRowIndex(int scenarioIndex) {
+        return ScenarioIndex.of(ScenarioIndex.getPlayerValue(scenarioIndex), Card.TWO,
+                ScenarioIndex.isPlayerSoft(scenarioIndex), ScenarioIndex.isPair(scenarioIndex));
+    }
+
+    /**
+     * Gets the index of a scenario in a chart row.
+     * @param rowIndex the index of the row (see <tt>getRowIndex</tt>)
+     * @param upCardValue the value of the dealer's up-card (2-11, where 11 is an ace)
+     * @return the index of the scenario
+     */
+    private static int getUpCardScenarioIndex(int rowIndex, int upCardValue) {
+        return ScenarioIndex.of(ScenarioIndex.getPlayerValue(rowIndex), Card.getCardWithValue(upCardValue),
+                ScenarioIndex.isPlayerSoft(rowIndex), ScenarioIndex.isPair(rowIndex));
+    }
+
+    /**
+     * Gets the task stored in a memo, or creates, stores, and starts a new one if the entry is empty. Inside the pool
+     * the new task is forked, so a worker that joins it runs it or steals other work instead of blocking.
+     * @param memo the memo
+     * @param memoKey the index of the entry in the memo
+     * @param taskFactory creates the task if it does not exist yet
+     * @return the (possibly completed) task
+     */
+    private <T> ForkJoinTask<T> getOrStartTask(AtomicReferenceArray<ForkJoinTask<T>> memo, int memoKey,
+                                               Supplier<ForkJoinTask<T>> taskFactory) {
+        while (true) {
+            final ForkJoinTask<T> existingTask = memo.get(memoKey);
+            if (existingTask != null) {
+                return existingTask;
+            }
+
+            final ForkJoinTask<T> newTask = taskFactory.get();
+            if (memo.compareAndSet(memoKey, null, newTask)) {
+                if (ForkJoinTask.getPool() == pool) {
+                    newTask.fork();
+                } else {
+                    pool.execute(newTask);
+                }
+
+                return newTask;
+            }
+        }
+    }
+
+    /**
+     * Packs a scenario index and a decision into a single memoization key.
+     * @param scenarioIndex the index of the scenario
+     * @param decision the decision made under the scenario
+     * @return a key that is unique to the scenario-decision combination
+     */
+    private static int getMemoKey(int scenarioIndex, Decision decision) {
+        return scenarioIndex * Decision.values().length + decision.ordinal();
+    }
+
+    /**
+     * Starts the tasks for every expected value that simulating <tt>decision</tt> (or, for splitting, computing its
+     * value) under a scenario reads, so that the computation itself only looks up memoized results.
+     * @param decision the player's initial decision to make with his hand
+     * @param scenarioIndex the index of the initial scenario
+     * @return the tasks that the simulation depends on
+     */
+    private List<ForkJoinTask<Double>> forkDependencies(Decision decision, int scenarioIndex) {
+        final List<ForkJoinTask<Double>> dependencies = new ArrayList<>();
+        final Card dealerCard = Card.getCardWithValue(ScenarioIndex.getDealerCard(scenarioIndex).getValue());
+
+        switch (decision) {
+            case HIT:
+                // after the hit, the player hits again or stands depending on his new hand
+                final int handIndex = ScenarioIndex.of(ScenarioIndex.getPlayerValue(scenarioIndex), dealerCard,
+                        ScenarioIndex.isPlayerSoft(scenarioIndex), false);
+                for (int cardValue = Card.TWO.getValue(); cardValue <= Card.ACE.getValue(); cardValue++) {
+                    final int nextIndex = ScenarioIndex.afterDrawing(handIndex, Card.getCardWithValue(cardValue));
+                    if (nextIndex != ScenarioIndex.BUST) {
+                        dependencies.add(getDecisionTask(Decision.HIT, nextIndex));
+                    }
+                }
+
+                break;
+            case SPLIT:
+                // each split hand is played with perfect play (including doubling down) after its second card,
+                // except for split aces, which must stand
+                final Card playerCard = getSplitCard(ScenarioIndex.toScenario(scenarioIndex));
+                if (playerCard.equals(Card.ACE)) {
+                    break;
+                }
+
+                for (int cardValue = Card.TWO.getValue(); cardValue <= Card.ACE.getValue(); cardValue++) {
+                    final int nextIndex = getSplitHandIndex(playerCard, dealerCard, cardValue);
+                    dependencies.add(getDecisionTask(Decision.HIT, nextIndex));
+                    dependencies.add(getDecisionTask(Decision.DOUBLE, nextIndex));
+                }
+
+                break;
+            default:
+                // doubling down only looks at the dealer outcome tables
+                break;
+        }
+
+        return dependencies;
+    }
+
+    /**
+     * Gets the card that is split under a pair scenario.
+     * @param scenario the pair scenario
+     * @return one card of the pair
+     */
+    private static Card getSplitCard(Scenario scenario) {
+        return (scenario.playerValue == 12 && scenario.isPlayerSoft)
+                ? Card.ACE // a soft 12 is a pair of aces
+                : Card.getCardWithValue(scenario.playerValue / 2);
+    }
+
+    /**
+     * Gets the index of the scenario that a hand made by splitting faces once it has its second card.
+     * @param splitCard the card that was split
+     * @param dealerCard the dealer's up-card
+     * @param cardValue the value of the second card (2-11, where 11 is an ace)
+     * @return the index of the hand's scenario, which is never a pair
+     */
+    private static int getSplitHandIndex(Card splitCard, Card dealerCard, int cardValue) {
+        final int splitCardIndex = ScenarioIndex.of(splitCard.getValue(), dealerCard, splitCard == Card.ACE, false);
+        return ScenarioIndex.afterDrawing(splitCardIndex, Card.getCardWithValue(cardValue));
+    }
+
+    /**
+     * Computes the expected value of splitting a pair from the memoized expected values of the hands that the split
+     * makes (see <tt>SplitEvaluator</tt>), so no split is simulated. Each hand's value carries the estimation error of
+     * its hitting and doubling down values, so the confidence interval of splitting spans the values it takes when
+     * every one of those is at the low end of its own interval and when every one is at the high end.
+     * @param scenarioIndex the index of the pair scenario
+     * @return the estimate of the expected value of splitting
+     */
+    private Estimate computeSplitEstimate(int scenarioIndex) {
+        final Card splitCard = getSplitCard(ScenarioIndex.toScenario(scenarioIndex));
+        final Card dealerCard = Card.getCardWithValue(ScenarioIndex.getDealerCard(scenarioIndex).getValue());
+        final double[] drawProbabilities = getSplitDrawProbabilities(splitCard, dealerCard);
+
+        final double[] values = new double[3]; // at the low end, at the mean, and at the high end
+        for (int i = 0; i < values.length; i++) {
+            final int bound = i - 1;
+            values[i] = new SplitEvaluator(splitCard.getValue(), rule.getMaxSplitHands(), drawProbabilities,
+                    cardValue -> getSplitHandStandValue(splitCard, dealerCard, cardValue),
+                    cardValue -> getSplitHandPlayValue(getSplitHandIndex(splitCard, dealerCard, cardValue),
+                            getSplitHandStandValue(splitCard, dealerCard, cardValue), bound))
+                    .getValue();
+        }
+
+        return new Estimate(values[1], (values[2] - values[0]) / 2, 0);
+    }
+
+    /**
+     * Gets the probability of each card value being drawn by a hand made by splitting. The dealer's up-card and both
+     * cards of the pair have been taken out of the shoe.
+     * @param splitCard the card that was split
+     * @param dealerCard the dealer's up-card
+     * @return the probabilities, indexed by card value (2-11, where 11 is an ace)
+     */
+    private double[] getSplitDrawProbabilities(Card splitCard, Card dealerCard) {
+        final double[] drawProbabilities = new double[Card.ACE.getValue() + 1];
+        final int[] valueCounts = DealerOutcomeTable.getShoeValueCounts(rule);
+        if (valueCounts == null) {
+            for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                drawProbabilities[value] = DealerOutcomeTable.getInfiniteDeckProbability(value);
+            }
+
+            return drawProbabilities;
+        }
+
+        valueCounts[dealerCard.getValue()] -= 1;
+        valueCounts[splitCard.getValue()] -= 2;
+
+        int cardsInShoe = 0;
+        for (int count : valueCounts) {
+            cardsInShoe += count;
+        }
+        for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+            drawProbabilities[value] = (double) valueCounts[value] / cardsInShoe;
+        }
+
+        return drawProbabilities;
+    }
+
+    /**
+     * Gets the expected value of standing on a hand made by splitting, once it has its second card. With a finite
+     * shoe, the dealer draws without the up-card, both cards of the pair, and the second card.
+     * @param splitCard the card that was split
+     * @param dealerCard the dealer's up-card
+     * @param cardValue the value of the second card (2-11, where 11 is an ace)
+     * @return the expected value of standing
+     */
+    private double getSplitHandStandValue(Card splitCard, Card dealerCard, int cardValue) {
+        if (shoeValueCounts == null) {
+            return dealerOutcomeTables[dealerCard.getValue()]
+                    .getStandValue(ScenarioIndex.getPlayerValue(getSplitHandIndex(splitCard, dealerCard, cardValue)));
+        }
+
+        final long pairKey = CompositionKey.setDealerCard(0, dealerCard.getValue());
+        final long handKey = CompositionKey.addCard(CompositionKey.split(pairKey, splitCard.getValue()), cardValue);
+        return getDealerOutcomeTable(handKey).getStandValue(CompositionKey.getHandValue(handKey));
+    }
+
+    /**
+     * Gets the expected value of playing a hand made by splitting, once it has its second card, with perfect play
+     * (including doubling down).
+     * @param handIndex the index of the hand's scenario
+     * @param standValue the expected value of standing on the hand
+     * @param bound -1 to use the low end of every confidence interval, 1 to use the high end, or 0 to use the means
+     * @return the expected value of the best decision
+     */
+    private double getSplitHandPlayValue(int handIndex, double standValue, int bound) {
+        double value = standValue;
+        for (Decision decision : SIMULATED_DECISIONS) {
+            final double mean = getDecisionTask(decision, handIndex).join();
+            final Estimate estimate = getEstimate(decision, handIndex);
+            final double halfWidth = (estimate != null) ? estimate.getHalfWidth() : 0;
+            value = Math.max(value, mean + bound * halfWidth);
+        }
+
+        return value;
+    }
+
+    /**
+     * Computes the expected value of a decision under a scenario by simulation. The tasks for every sub-scenario that
+     * the simulation can reach are forked and joined first, then the trials are split into tasks of
+     * <tt>TRIALS_PER_TASK</tt> trials each. In <tt>EvaluationMode.COMMON_RANDOM_NUMBERS</tt> and
+     * <tt>EvaluationMode.ADAPTIVE</tt>, the value is instead taken from the task that simulates every decision under
+     * the scenario at once, and in <tt>EvaluationMode.ALL_UP_CARDS</tt>, from the task that simulates the scenario's
+     * chart row against every up-card at once. Splitting is never simulated; its value is computed from the values of
+     * the split hands.
+     */
+    private class DecisionTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final Decision decision;
+        private final int scenarioIndex;
+
+        DecisionTask(Decision decision, int scenarioIndex) {
+            this.decision = decision;
+            this.scenarioIndex = scenarioIndex;
+        }
+
+        @Override
+        protected Double compute() {
+            try {
+                if (decision != Decision.SPLIT && evaluationMode == EvaluationMode.ALL_UP_CARDS) {
+                    final UpCardTrialStatistics statistics = getUpCardTrialsTask(getRowIndex(scenarioIndex)).join();
+                    final Estimate estimate = statistics.getEstimate(
+                            ScenarioIndex.getDealerCard(scenarioIndex).getValue(), decision, confidenceBound);
+                    estimateMemo.set(getMemoKey(scenarioIndex, decision), estimate);
+                    storeEstimates(scenarioIndex, Collections.singletonMap(decision, estimate));
+
+                    return estimate.getMean();
+                } else if (decision != Decision.SPLIT && evaluationMode != EvaluationMode.SIMULATION) {
+                    return getCommonTrialsTask(scenarioIndex).join()[decision.ordinal()];
+                }
+
+                for (ForkJoinTask<Double> dependency : forkDependencies(decision, scenarioIndex)) {
+                    dependency.join();
+                }
+
+                if (decision == Decision.SPLIT) {
+                    final Estimate estimate = computeSplitEstimate(scenarioIndex);
+                    estimateMemo.set(getMemoKey(scenarioIndex, decision), estimate);
+                    return estimate.getMean();
+                }
+
+                final TrialStatistics statistics =
+                        new TrialTask(new Decision[]{decision}, scenarioIndex, 0, simulationCount).compute();
+                final Estimate estimate = statistics.getEstimate(decision, confidenceBound);
+                estimateMemo.set(getMemoKey(scenarioIndex, decision), estimate);
+                storeEstimates(scenarioIndex, Collections.singletonMap(decision, estimate));
+
+                return statistics.getMean(decision);
+            } catch (RuntimeException e) {
+                // let a later request try again
+                expectedValueMemo.compareAndSet(getMemoKey(scenarioIndex, decision), this, null);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Computes the expected value of every simulated decision under a scenario from the same random hands, so that
+     * the differences between the decisions do not carry the noise of separately dealt hands. In
+     * <tt>EvaluationMode.ADAPTIVE</tt>, simulation stops early once the best decision is settled.
+     */
+    private class CommonTrialsTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int scenarioIndex;
+
+        CommonTrialsTask(int scenarioIndex) {
+            this.scenarioIndex = scenarioIndex;
+        }
+
+        @Override
+        protected double[] compute() {
+            try {
+                final Decision[] decisions = SIMULATED_DECISIONS;
+                final List<ForkJoinTask<Double>> dependencies = new ArrayList<>();
+                for (Decision decision : decisions) {
+                    dependencies.addAll(forkDependencies(decision, scenarioIndex));
+                }
+                if (ScenarioIndex.isPair(scenarioIndex)) {
+                    // the value of splitting is compared against the simulated decisions in isSettled
+                    dependencies.add(getDecisionTask(Decision.SPLIT, scenarioIndex));
+                }
+                for (ForkJoinTask<Double> dependency : dependencies) {
+                    dependency.join();
+                }
+
+                final TrialStatistics statistics;
+                if (evaluationMode == EvaluationMode.ADAPTIVE) {
+                    statistics = simulateUntilSettled(decisions, scenarioIndex);
+                } else {
+                    statistics = new TrialTask(decisions, scenarioIndex, 0, simulationCount).compute();
+                }
+
+                commonTrialStatistics.set(scenarioIndex, statistics);
+                final double[] expectedValues = new double[Decision.values().length];
+                final Map<Decision, Estimate> estimates = new EnumMap<>(Decision.class);
+                for (Decision decision : decisions) {
+                    final Estimate estimate = statistics.getEstimate(decision, confidenceBound);
+                    expectedValues[decision.ordinal()] = statistics.getMean(decision);
+                    estimateMemo.set(getMemoKey(scenarioIndex, decision), estimate);
+                    estimates.put(decision, estimate);
+                }
+                storeEstimates(scenarioIndex, estimates);
+
+                return expectedValues;
+            } catch (RuntimeException e) {
+                // let a later request try again
+                commonTrialsMemo.compareAndSet(scenarioIndex, this, null);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Simulates every decision of a chart row against each of the ten up-cards from the same random hands, so that a
+     * hand is dealt once for the whole row instead of once per up-card.
+     */
+    private class UpCardTrialsTask extends RecursiveTask<UpCardTrialStatistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final int rowIndex;
+
+        UpCardTrialsTask(int rowIndex) {
+            this.rowIndex = rowIndex;
+        }
+
+        @Override
+        protected UpCardTrialStatistics compute() {
+            try {
+                final List<ForkJoinTask<Double>> dependencies = new ArrayList<>();
+                for (int upCardValue = Card.TWO.getValue(); upCardValue <= Card.ACE.getValue(); upCardValue++) {
+                    for (Decision decision : SIMULATED_DECISIONS) {
+                        dependencies.addAll(forkDependencies(decision, getUpCardScenarioIndex(rowIndex, upCardValue)));
+                    }
+                }
+                for (ForkJoinTask<Double> dependency : dependencies) {
+                    dependency.join();
+                }
+
+                return new UpCardTrialTask(rowIndex, 0, simulationCount).compute();
+            } catch (RuntimeException e) {
+                // let a later request try again
+                upCardTrialsMemo.compareAndSet(rowIndex, this, null);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Simulates the trials of a chart row numbered <tt>firstTrial</tt> up to (but not including) <tt>lastTrial</tt>,
+     * splitting in half like <tt>TrialTask</tt> does.
+     */
+    private class UpCardTrialTask extends RecursiveTask<UpCardTrialStatistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final int rowIndex;
+        private final int firstTrial;
+        private final int lastTrial;
+
+        UpCardTrialTask(int rowIndex, int firstTrial, int lastTrial) {
+            this.rowIndex = rowIndex;
+            this.firstTrial = firstTrial;
+            this.lastTrial = lastTrial;
+        }
+
+        @Override
+        protected UpCardTrialStatistics compute() {
+            if (lastTrial - firstTrial > TRIALS_PER_TASK) {
+                final int middleTrial = (firstTrial + lastTrial) >>> 1;
+                final UpCardTrialTask firstHalf = new UpCardTrialTask(rowIndex, firstTrial, middleTrial);
+                final UpCardTrialTask secondHalf = new UpCardTrialTask(rowIndex, middleTrial, lastTrial);
+                firstHalf.fork();
+
+                final UpCardTrialStatistics statistics = secondHalf.compute();
+                statistics.merge(firstHalf.join());
+                return statistics;
+            }
+
+            final SplittableRandom random =
+                    new SplittableRandom(getTrialSeed(SIMULATED_DECISIONS, rowIndex, firstTrial));
+            return simulateUpCardTrials(rowIndex, lastTrial - firstTrial, random);
+        }
+    }
+
+    /**
+     * Simulates the trials numbered <tt>firstTrial</tt> up to (but not including) <tt>lastTrial</tt>, splitting in
+     * half until at most <tt>TRIALS_PER_TASK</tt> trials are left. The split points only depend on the trial numbers,
+     * and the halves are always merged in the same order, so the sums do not depend on which threads ran the halves.
+     */
+    private class TrialTask extends RecursiveTask<TrialStatistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final Decision[] decisions;
+        private final int scenarioIndex;
+        private final int firstTrial;
+        private final int lastTrial;
+
+        TrialTask(Decision[] decisions, int scenarioIndex, int firstTrial, int lastTrial) {
+            this.decisions = decisions;
+            this.scenarioIndex = scenarioIndex;
+            this.firstTrial = firstTrial;
+            this.lastTrial = lastTrial;
+        }
+
+        @Override
+        protected TrialStatistics compute() {
+            if (lastTrial - firstTrial > TRIALS_PER_TASK) {
+                final int middleTrial = (firstTrial + lastTrial) >>> 1;
+                final TrialTask firstHalf = new TrialTask(decisions, scenarioIndex, firstTrial, middleTrial);
+                final TrialTask secondHalf = new TrialTask(decisions, scenarioIndex, middleTrial, lastTrial);
+                firstHalf.fork();
+
+                final TrialStatistics statistics = secondHalf.compute();
+                statistics.merge(firstHalf.join());
+                return statistics;
+            }
+
+            final SplittableRandom random = new SplittableRandom(getTrialSeed(decisions, scenarioIndex, firstTrial));
+            return simulateTrials(decisions, ScenarioIndex.toScenario(scenarioIndex), lastTrial - firstTrial, random);
+        }
+    }
+
+    /**
+     * Derives the seed of the random numbers used by a run of trials from this decider's seed, so that each run gets
+     * its own stream no matter which thread simulates it.
+     * @param decisions the decisions simulated in the run (none for a hand that is only dealt)
+     * @param scenarioIndex the index of the scenario
+     * @param firstTrial the number of the first trial in the run
+     * @return the seed
+     */
+    private long getTrialSeed(Decision[] decisions, int scenarioIndex, int firstTrial) {
+        long decisionMask = 0;
+        for (Decision decision : decisions) {
+            decisionMask |= 1L << decision.ordinal();
+        }
+
+        long trialSeed = mix(seed ^ scenarioIndex);
+        trialSeed = mix(trialSeed ^ decisionMask);
+        return mix(trialSeed ^ firstTrial);
+    }
+
+    // the finalizer of SplitMix64, which spreads every input bit across the output
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Simulates rounds of trials until the best decision under a scenario leads every other decision by
+     * <tt>confidenceBound</tt> standard errors of their difference, or until <tt>simulationCount</tt> trials have been
+     * simulated. Every round doubles the number of trials so far.
+     * @param decisions the decisions to simulate together
+     * @param scenarioIndex the index of the scenario
+     * @return the statistics of every trial simulated
+     */
+    private TrialStatistics simulateUntilSettled(Decision[] decisions, int scenarioIndex) {
+        final Scenario scenario = ScenarioIndex.toScenario(scenarioIndex);
+        final TrialStatistics statistics = new TrialStatistics();
+        int roundTrialCount = Math.min(simulationCount, ADAPTIVE_FIRST_ROUND_TRIALS);
+        while (roundTrialCount > 0) {
+            final int firstTrial = (int) statistics.getTrialCount();
+            statistics.merge(new TrialTask(decisions, scenarioIndex, firstTrial, firstTrial + roundTrialCount).compute());
+
+            if (isSettled(decisions, scenario, statistics)) {
+                break;
+            }
+
+            roundTrialCount = (int) Math.min(simulationCount - statistics.getTrialCount(), statistics.getTrialCount());
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Checks whether the best first decision under a scenario leads every other one by at least
+     * <tt>confidenceBound</tt> standard errors. Standing and surrendering (if allowed) are not simulated on these hands,
+     * so they are constants with no variance. Splitting (for a pair) is computed from the estimates of the split hands,
+     * which were simulated on other hands, so its interval is independent of these trials and widens the interval of
+     * any difference that it is part of.
+     * @param decisions the simulated decisions
+     * @param scenario the scenario
+     * @param statistics the statistics of the trials so far
+     * @return whether the best decision is settled
+     */
+    private boolean isSettled(Decision[] decisions, Scenario scenario, TrialStatistics statistics) {
+        final Map<Decision, Estimate> otherEstimates = new EnumMap<>(Decision.class);
+        otherEstimates.put(Decision.STAND, Estimate.exact(getExpectedStandValue(scenario)));
+        if (rule.canSurrender()) {
+            otherEstimates.put(Decision.SURRENDER, Estimate.exact(-0.5));
+        }
+        if (scenario.isPair) {
+            final int scenarioIndex = ScenarioIndex.of(scenario);
+            final double splitValue = getDecisionTask(Decision.SPLIT, scenarioIndex).join();
+            final Estimate splitEstimate = getEstimate(Decision.SPLIT, scenarioIndex);
+            otherEstimates.put(Decision.SPLIT, splitEstimate != null ? splitEstimate : Estimate.exact(splitValue));
+        }
+
+        final List<Decision> candidates = new ArrayList<>(otherEstimates.keySet());
+        candidates.addAll(Arrays.asList(decisions));
+
+        Decision bestDecision = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Decision candidate : candidates) {
+            final double value = otherEstimates.containsKey(candidate)
+                    ? otherEstimates.get(candidate).getMean()
+                    : statistics.getMean(candidate);
+            if (value > bestValue) {
+                bestDecision = candidate;
+                bestValue = value;
+            }
+        }
+
+        for (Decision candidate : candidates) {
+            if (candidate == bestDecision) {
+                continue;
+            }
+
+            final boolean bestIsSimulated = !otherEstimates.containsKey(bestDecision);
+            final boolean candidateIsSimulated = !otherEstimates.containsKey(candidate);
+            final double lead = bestValue - (candidateIsSimulated
+                    ? statistics.getMean(candidate)
+                    : otherEstimates.get(candidate).getMean());
+
+            // the variance of the difference between the two decisions on the same hand
+            double differenceVariance = 0;
+            if (bestIsSimulated) {
+                differenceVariance += statistics.getVariance(bestDecision);
+            }
+            if (candidateIsSimulated) {
+                differenceVariance += statistics.getVariance(candidate);
+            }
+            if (bestIsSimulated && candidateIsSimulated) {
+                differenceVariance -= 2 * statistics.getCovariance(bestDecision, candidate);
+            }
+
+            // the intervals of the decisions that were not simulated on these hands are independent of them
+            final double standardError = Math.sqrt(Math.max(0, differenceVariance) / statistics.getTrialCount());
+            double halfWidth = confidenceBound * standardError;
+            if (!bestIsSimulated) {
+                halfWidth = Math.hypot(halfWidth, otherEstimates.get(bestDecision).getHalfWidth());
+            }
+            if (!candidateIsSimulated) {
+                halfWidth = Math.hypot(halfWidth, otherEstimates.get(candidate).getHalfWidth());
+            }
+
+            if (lead <= halfWidth) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Performs <tt>trialCount</tt> simulations of a given <tt>scenario</tt> (an encapsulation of the player's hand
+     * total and the dealer's up-card) for each of the given initial decisions. Every trial deals one random hand, and
+     * each decision is played out on its own copy of that hand and shoe, which is reseeded with the trial's own seed so
+     * that every decision draws the same cards for as long as the cards left allow. Once the decision is made, further
+     * moves are made with perfect play (by induction).
+     * @param decisions the player's initial decisions to simulate
+     * @param scenario the initial scenario (an encapsulation of the player's hand total
+     * and the dealer's up-card)
+     * @param trialCount the number of trials to simulate
+     * @param random the source of every random card in the trials
+     * @return the statistics of the units won over all of the trials
+     */
+    private TrialStatistics simulateTrials(Decision[] decisions, Scenario scenario, int trialCount,
+                                           SplittableRandom random) {
+        if (decisions.length == 1 && decisions[0] == Decision.DOUBLE && rule.isInfiniteDeck()) {
+            // doubling down on its own from an infinite deck does not need a shoe
+            final TrialStatistics statistics = new DoubleDownKernel(handGenerator, rule, scenario,
+                    dealerOutcomeTables[scenario.dealerCard.getValue()]).simulate(trialCount, random);
+            metrics.recordTrials(decisions, ScenarioIndex.of(scenario), trialCount, 0);
+            return statistics;
+        }
+
+        // every trial rebuilds the shoe and replaces the hands, so one set of objects serves all of them
+        final Shoe shoe = Shoe.create(rule, random);
+        final Player player = new Player(shoe);
+
+        // a single decision can be played out on the dealt hand itself
+        final Shoe shoeCopy = (decisions.length > 1)
+                ? Shoe.create(rule, random)
+                : shoe;
+        final Player playerCopy = (decisions.length > 1 ? new Player(shoeCopy) : player);
+
+        final TrialStatistics statistics = new TrialStatistics();
+        final double[] unitsWon = new double[Decision.values().length];
+        for (int i = 0; i < trialCount; i++) {
+            // generate a random shoe and player hand under this scenario
+            handGenerator.deal(scenario, shoe, player);
+            final long playSeed = random.nextLong();
+
+            for (Decision decision : decisions) {
+                if (playerCopy != player) {
+                    shoeCopy.copyFrom(shoe);
+                    shoeCopy.reseed(playSeed);
+                    playerCopy.copyFrom(player);
                 }
+
+                unitsWon[decision.ordinal()] = simulateTrial(decision, scenario, shoeCopy, playerCopy);
             }
 
-            return unitsWon;
-        };
+            statistics.addTrial(decisions, unitsWon);
+        }
+        metrics.recordTrials(decisions, ScenarioIndex.of(scenario), trialCount, trialCount);
 
-        final List<Callable<Double>> taskList = new ArrayList<>();
-        for (int i = 0; i < threadCount; i++) {
-            taskList.add(task);
+        return statistics;
+    }
+
+    /**
+     * Performs <tt>trialCount</tt> simulations of a chart row. Every trial deals one random hand with no up-card taken
+     * out of the shoe, and each decision is played out against each up-card on its own copy of that hand and shoe,
+     * reseeded with the trial's own seed so that every replay draws the same cards. Dealing the up-card first and the
+     * player's cards after is as likely as dealing them in the other order, so the result against an up-card is
+     * weighted by the probability of drawing that up-card from what is left in the shoe once the decision is played
+     * out. This corrects the shoe composition of each up-card without dealing again.
+     * @param rowIndex the index of the row (see <tt>getRowIndex</tt>)
+     * @param trialCount the number of trials to simulate
+     * @param random the source of every random card in the trials
+     * @return the weighted statistics of the units won against every up-card over all of the trials
+     */
+    private UpCardTrialStatistics simulateUpCardTrials(int rowIndex, int trialCount, SplittableRandom random) {
+        final int[] scenarioIndices = new int[Card.ACE.getValue() - Card.TWO.getValue() + 1];
+        final Scenario[] scenarios = new Scenario[Card.ACE.getValue() + 1]; // indexed by up-card value
+        for (int upCardValue = Card.TWO.getValue(); upCardValue <= Card.ACE.getValue(); upCardValue++) {
+            scenarioIndices[upCardValue - Card.TWO.getValue()] = getUpCardScenarioIndex(rowIndex, upCardValue);
+            scenarios[upCardValue] = ScenarioIndex.toScenario(getUpCardScenarioIndex(rowIndex, upCardValue));
         }
 
-        double totalUnitsWon = 0.0;
-        for (Future<Double> future : executor.invokeAll(taskList)) {
-            totalUnitsWon += future.get();
+        final Shoe shoe = Shoe.create(rule, random);
+        final Player player = new Player(shoe);
+        final Shoe shoeCopy = Shoe.create(rule, random);
+        final Player playerCopy = new Player(shoeCopy);
+
+        final UpCardTrialStatistics statistics = new UpCardTrialStatistics();
+        for (int i = 0; i < trialCount; i++) {
+            handGenerator.dealWithoutUpCard(scenarios[Card.TWO.getValue()], shoe, player);
+            final long playSeed = random.nextLong();
+            statistics.addTrial();
+
+            for (int upCardValue = Card.TWO.getValue(); upCardValue <= Card.ACE.getValue(); upCardValue++) {
+                for (Decision decision : SIMULATED_DECISIONS) {
+                    shoeCopy.copyFrom(shoe);
+                    shoeCopy.reseed(playSeed);
+                    playerCopy.copyFrom(player);
+
+                    final double unitsWon = simulateTrial(decision, scenarios[upCardValue], shoeCopy, playerCopy);
+                    statistics.addResult(upCardValue, decision, shoeCopy.getDrawProbability(upCardValue), unitsWon);
+                }
+            }
         }
+        metrics.recordTrials(SIMULATED_DECISIONS, scenarioIndices, trialCount, trialCount);
 
-        final double expectedWinnings = totalUnitsWon / (threadCount * Math.ceil(simulationCount / threadCount));
-        //System.out.println(decision + " result (" + scenario + "): " + expectedWinnings);
-        map.put(scenario, expectedWinnings);
-        semaphore.release();
-        return expectedWinnings;
+        return statistics;
     }
 
-    private final Map<Scenario, Double> expectedHitMap = new HashMap<>(); // for memoization
+    /**
+     * Plays out one dealt hand given that the first decision made is <tt>decision</tt>.
+     * @param decision the player's initial decision to make with his hand
+     * @param scenario the initial scenario
+     * @param shoe the shoe that the hand was dealt from
+     * @param player the dealt hand
+     * @return the units won
+     */
+    private double simulateTrial(Decision decision, Scenario scenario, Shoe shoe, Player player) {
+        final Card dealerCard = scenario.dealerCard;
+
+        switch (decision) {
+            case HIT:
+                // take a hit
+                player.hit();
+
+                if (player.getHandValue() > 21) {
+                    return -1;
+                } else {
+                    // inductive step: simulate best play on the new hand
+                    return simulateBestPlay(player, dealerCard, shoe);
+                }
+            case DOUBLE:
+                // have the player take one more card and then stand
+                player.hit();
+
+                if (player.getHandValue() > 21) {
+                    return -2;
+                } else {
+                    return 2 * getStandValue(player, dealerCard);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown decision " + decision);
+        }
+    }
 
     /**
      * Computes the expected value under a given scenario (an encapsulation of the player's hand total
      * and the dealer's up-card) given that the first is to hit. All further moves are made with perfect play.
      * @param scenario the scenario to compute the expected value for
      * @return a double from -1 to 1 representing the average win amount
-     * @throws Exception
      */
-    private double getExpectedHitValue(Scenario scenario) throws Exception {
-        final Semaphore hitSemaphore = hitSemaphoreMap.get(scenario);
-        return getExpectedDecisionValue(Decision.HIT, scenario, expectedHitMap, hitSemaphore);
+    private double getExpectedHitValue(Scenario scenario) {
+        return getExpectedDecisionValue(Decision.HIT, scenario);
     }
 
 
-    private final Map<Scenario, Double> expectedStandMap = new HashMap<>(); // for memoization
-
     /**
      * Computes the expected value of standing under a given scenario (an encapsulation of the player's hand total
-     * and the dealer's up-card).
+     * and the dealer's up-card). No simulation is needed, since this is a dot product with the distribution of final
+     * dealer totals. With a finite shoe, that distribution depends on the player's cards, so the value is averaged
+     * over every hand that can be dealt for the scenario, weighted by its probability.
      *
      * @param scenario the scenario to compute the expected value for
-     * @return a double from -2 to 2 representing the average win amount
-     * @throws Exception
+     * @return a double from -1 to 1 representing the average win amount
      */
-    private double getExpectedStandValue(final Scenario scenario) throws Exception {
-        final Semaphore standSemaphore = standSemaphoreMap.get(scenario);
-        return getExpectedDecisionValue(Decision.STAND, scenario, expectedStandMap, standSemaphore);
-    }
+    private double getExpectedStandValue(final Scenario scenario) {
+        if (shoeValueCounts == null) {
+            return dealerOutcomeTables[scenario.dealerCard.getValue()].getStandValue(scenario.playerValue);
+        }
+
+        final int canonicalIndex = equivalence.getCanonicalIndex(ScenarioIndex.of(scenario), Decision.STAND);
+        Double expectedStandValue = expectedStandValues.get(canonicalIndex);
+        if (expectedStandValue == null) {
+            double standValue = 0;
+            for (Map.Entry<Long, Double> entry : handGenerator.getHandProbabilities(scenario).entrySet()) {
+                final long handKey = CompositionKey.setDealerCard(entry.getKey(), scenario.dealerCard.getValue());
+                standValue += entry.getValue() * getDealerOutcomeTable(handKey).getStandValue(scenario.playerValue);
+            }
 
-    private final Map<Scenario, Double> expectedSplitMap = new HashMap<>(); // for memoization
+            expectedStandValue = standValue;
+            expectedStandValues.set(canonicalIndex, expectedStandValue);
+        }
+
+        return expectedStandValue;
+    }
 
     /**
      * Computes the expected value of splitting under a given scenario (an encapsulation of the player's hand total
@@ -451,36 +1240,26 @@ public class Decider {
      *
      * @param scenario the scenario to compute the expected value for
      * @return a double from -2 to 2 representing the average win amount
-     * @throws Exception
      */
-    private double getExpectedSplitValue(Scenario scenario) throws Exception {
-        final Semaphore splitSemaphore = splitSemaphoreMap.get(scenario);
-
+    private double getExpectedSplitValue(Scenario scenario) {
         if (!scenario.isPair) { // can't split
-            expectedSplitMap.put(scenario, (double) Integer.MIN_VALUE);
             return Integer.MIN_VALUE;
         }
 
-        return getExpectedDecisionValue(Decision.SPLIT, scenario, expectedSplitMap, splitSemaphore);
+        return getExpectedDecisionValue(Decision.SPLIT, scenario);
     }
 
-    private final Map<Scenario, Double> expectedDoubleMap = new HashMap<>(); // for memoization
-
     /**
      * Computes the expected value of doubling down under a given scenario (an encapsulation of the player's hand total
      * and the dealer's up-card).
      *
      * @param scenario the scenario to compute the expected value for
      * @return a double from -2 to 2 representing the average win amount
-     * @throws Exception
      */
-    private double getExpectedDoubleValue(Scenario scenario) throws Exception {
-        final Semaphore doubleSemaphore = standSemaphoreMap.get(scenario);
-        return getExpectedDecisionValue(Decision.DOUBLE, scenario, expectedDoubleMap, doubleSemaphore);
+    private double getExpectedDoubleValue(Scenario scenario) {
+        return getExpectedDecisionValue(Decision.DOUBLE, scenario);
     }
 
-    private final Map<Scenario, Map<Decision, Double>> scenarioExpectedValues = new HashMap<>();
-
     /**
      * Computes the expected value of hitting, standing, doubling down, and splitting under a given scenario (an
      * encapsulation of the player's hand total and the dealer's up-card).
@@ -491,8 +1270,64 @@ public class Decider {
      * @throws Exception
      */
     public Map<Decision, Double> computeExpectedValues(Scenario scenario) throws Exception {
-        if (scenarioExpectedValues.containsKey(scenario)) {
-            return scenarioExpectedValues.get(scenario);
+        return getExpectedValues(scenario);
+    }
+
+    /**
+     * Computes the expected values under a given scenario along with their confidence intervals. Values that are not
+     * simulated (such as standing, or everything in <tt>EvaluationMode.EXACT</tt>) have intervals of width zero.
+     * @param scenario the scenario to compute the expected values for
+     * @return a map containing an estimate for each decision under the given scenario
+     */
+    public Map<Decision, Estimate> computeEstimates(Scenario scenario) {
+        final int scenarioIndex = ScenarioIndex.of(scenario);
+        final Map<Decision, Estimate> estimates = new EnumMap<>(Decision.class);
+        for (Map.Entry<Decision, Double> entry : getExpectedValues(scenario).entrySet()) {
+            final Estimate estimate = getEstimate(entry.getKey(), scenarioIndex);
+            estimates.put(entry.getKey(), estimate != null ? estimate : Estimate.exact(entry.getValue()));
+        }
+
+        return estimates;
+    }
+
+    /**
+     * Computes how much more one decision wins than another under a given scenario, along with the confidence interval
+     * of the difference. In <tt>EvaluationMode.COMMON_RANDOM_NUMBERS</tt> and <tt>EvaluationMode.ADAPTIVE</tt>, the
+     * simulated decisions are played out on the same hands, so the covariance between them narrows the interval.
+     * Otherwise, the two estimates are independent.
+     * @param scenario the scenario to compare the decisions under
+     * @param decision the decision whose expected value is subtracted from
+     * @param otherDecision the decision whose expected value is subtracted
+     * @return an estimate of the expected value of <tt>decision</tt> minus that of <tt>otherDecision</tt>
+     */
+    public Estimate computeDifferenceEstimate(Scenario scenario, Decision decision, Decision otherDecision) {
+        final Map<Decision, Estimate> estimates = computeEstimates(scenario);
+        final int scenarioIndex = ScenarioIndex.of(scenario);
+        final int canonicalIndex = equivalence.getCanonicalIndex(scenarioIndex, decision);
+        final TrialStatistics statistics = commonTrialStatistics.get(canonicalIndex);
+        if (statistics != null && canonicalIndex == equivalence.getCanonicalIndex(scenarioIndex, otherDecision)
+                && Arrays.asList(SIMULATED_DECISIONS).containsAll(Arrays.asList(decision, otherDecision))) {
+            return statistics.getDifferenceEstimate(decision, otherDecision, confidenceBound);
+        }
+
+        final Estimate estimate = estimates.get(decision);
+        final Estimate otherEstimate = estimates.get(otherDecision);
+        return new Estimate(estimate.getMean() - otherEstimate.getMean(),
+                Math.hypot(estimate.getHalfWidth(), otherEstimate.getHalfWidth()),
+                estimate.getTrialCount() + otherEstimate.getTrialCount());
+    }
+
+    private Map<Decision, Double> getExpectedValues(Scenario scenario) {
+        final int scenarioIndex = ScenarioIndex.of(scenario);
+        final Map<Decision, Double> memoizedValueMap = scenarioExpectedValues.get(scenarioIndex);
+        if (memoizedValueMap != null) {
+            return memoizedValueMap;
+        }
+
+        if (evaluationMode == EvaluationMode.EXACT) {
+            final Map<Decision, Double> expectedValueMap = exactEvaluator.computeExpectedValues(scenario);
+            scenarioExpectedValues.set(scenarioIndex, expectedValueMap);
+            return expectedValueMap;
         }
 
         final Map<Decision, Double> expectedValueMap = new HashMap<>();
@@ -501,7 +1336,7 @@ public class Decider {
         expectedValueMap.put(Decision.SPLIT, getExpectedSplitValue(scenario));
         expectedValueMap.put(Decision.DOUBLE, getExpectedDoubleValue(scenario));
         expectedValueMap.put(Decision.SURRENDER, -0.5);
-        scenarioExpectedValues.put(scenario, expectedValueMap);
+        scenarioExpectedValues.set(scenarioIndex, expectedValueMap);
 
         return expectedValueMap;
     }
@@ -513,10 +1348,21 @@ public class Decider {
      * @param canDoubleDown whether the player has the right to double down. A player loses this right after taking a
      *                      third card and, under some casino rules, after splitting.
      * @return a decision-value pair
-     * @throws Exception
      */
-    private Pair<Decision, Double> computeBestScenarioResult(Scenario scenario, boolean canDoubleDown, boolean firstMove) throws Exception {
-        final Map<Decision, Double> expectedValueMap = computeExpectedValues(scenario);
+    private Pair<Decision, Double> computeBestScenarioResult(Scenario scenario, boolean canDoubleDown, boolean firstMove) {
+        return pickBestDecision(getExpectedValues(scenario), rule, canDoubleDown, firstMove);
+    }
+
+    /**
+     * Picks the decision with the highest expected value among those that the player is allowed to make.
+     * @param expectedValueMap the expected value of every decision
+     * @param rule the rules of the game
+     * @param canDoubleDown whether the player has the right to double down
+     * @param firstMove whether this is the player's first decision on the hand (the only time he may surrender)
+     * @return a decision-value pair
+     */
+    static Pair<Decision, Double> pickBestDecision(Map<Decision, Double> expectedValueMap, Rule rule,
+                                                   boolean canDoubleDown, boolean firstMove) {
         Decision bestExpectedDecision = null;
         double bestExpectedValue = Integer.MIN_VALUE;
 
@@ -543,4 +1389,252 @@ public class Decider {
     public Pair<Decision, Double> computeBestScenarioResult(Scenario scenario) throws Exception {
         return computeBestScenarioResult(scenario, true, true);
     }
+
+    /**
+     * Computes the expected values under a given scenario without blocking the calling thread. The scenario is solved
+     * on this decider's pool, whose number of threads is fixed, so any number of requests can be issued at once.
+     * Requests for a scenario that is already being solved share that solve.
+     *
+     * Cancelling the returned future stops waiting for the result. The solve itself is dropped if it has not started
+     * and every request that shares it has been cancelled; otherwise it finishes, and its result is memoized.
+     * @param scenario the scenario to compute the expected values for
+     * @return a future that completes with a map containing the expected values under the given scenario
+     */
+    public CompletableFuture<Map<Decision, Double>> computeExpectedValuesAsync(Scenario scenario) {
+        final int scenarioIndex = ScenarioIndex.of(scenario);
+        final Map<Decision, Double> memoizedValueMap = scenarioExpectedValues.get(scenarioIndex);
+        if (memoizedValueMap != null) {
+            return CompletableFuture.completedFuture(memoizedValueMap);
+        }
+
+        while (true) {
+            final AsyncSolve existingSolve = asyncSolves.get(scenarioIndex);
+            if (existingSolve != null) {
+                final CompletableFuture<Map<Decision, Double>> future = existingSolve.join();
+                if (future != null) {
+                    return future;
+                }
+            }
+
+            final AsyncSolve newSolve = new AsyncSolve(scenario, scenarioIndex);
+            if (asyncSolves.compareAndSet(scenarioIndex, existingSolve, newSolve)) {
+                final CompletableFuture<Map<Decision, Double>> future = newSolve.join();
+                pool.execute(newSolve);
+                return future;
+            }
+        }
+    }
+
+    /**
+     * Computes the expected values under each of the given scenarios without blocking the calling thread (see
+     * <tt>computeExpectedValuesAsync(Scenario)</tt>). Cancelling the returned future cancels the request for every
+     * scenario.
+     * @param scenarios the scenarios to compute the expected values for
+     * @return a future that completes with the expected values under each scenario, in the order of
+     * <tt>scenarios</tt>, once every scenario is solved
+     */
+    public CompletableFuture<Map<Scenario, Map<Decision, Double>>> computeExpectedValuesAsync(
+            Collection<Scenario> scenarios) {
+        final Map<Scenario, CompletableFuture<Map<Decision, Double>>> futures = new LinkedHashMap<>();
+        for (Scenario scenario : scenarios) {
+            futures.put(scenario, computeExpectedValuesAsync(scenario));
+        }
+
+        final CompletableFuture<Map<Scenario, Map<Decision, Double>>> result =
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply((ignored) -> {
+                    final Map<Scenario, Map<Decision, Double>> expectedValues = new LinkedHashMap<>();
+                    for (Map.Entry<Scenario, CompletableFuture<Map<Decision, Double>>> entry : futures.entrySet()) {
+                        expectedValues.put(entry.getKey(), entry.getValue().join());
+                    }
+
+                    return expectedValues;
+                });
+        result.whenComplete((expectedValues, exception) -> {
+            if (result.isCancelled()) {
+                for (CompletableFuture<Map<Decision, Double>> future : futures.values()) {
+                    future.cancel(false);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Computes the best decision to make under a given scenario without blocking the calling thread (see
+     * <tt>computeExpectedValuesAsync(Scenario)</tt>).
+     * @param scenario the scenario to compute the best play for
+     * @return a future that completes with a decision-value pair
+     */
+    public CompletableFuture<Pair<Decision, Double>> computeBestScenarioResultAsync(Scenario scenario) {
+        final CompletableFuture<Map<Decision, Double>> expectedValues = computeExpectedValuesAsync(scenario);
+        final CompletableFuture<Pair<Decision, Double>> result =
+                expectedValues.thenApply((valueMap) -> pickBestDecision(valueMap, rule, true, true));
+        result.whenComplete((pair, exception) -> {
+            if (result.isCancelled()) {
+                expectedValues.cancel(false);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * One solve of a scenario for <tt>computeExpectedValuesAsync</tt>, shared by every request for the scenario that
+     * arrives while it is queued or running. Each request gets its own future, so that cancelling one request does not
+     * cancel the others.
+     */
+    private class AsyncSolve implements Runnable {
+        // the number of requests that have not been cancelled, or -1 once the solve has been dropped
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private final CompletableFuture<Map<Decision, Double>> result = new CompletableFuture<>();
+        private final Scenario scenario;
+        private final int scenarioIndex;
+
+        AsyncSolve(Scenario scenario, int scenarioIndex) {
+            this.scenario = scenario;
+            this.scenarioIndex = scenarioIndex;
+        }
+
+        /**
+         * Adds a request to this solve.
+         * @return the request's future, or null if the solve has been dropped
+         */
+        CompletableFuture<Map<Decision, Double>> join() {
+            int count;
+            do {
+                count = requestCount.get();
+                if (count < 0) {
+                    return null;
+                }
+            } while (!requestCount.compareAndSet(count, count + 1));
+
+            final CompletableFuture<Map<Decision, Double>> future = new CompletableFuture<>();
+            result.whenComplete((expectedValues, exception) -> {
+                if (exception != null) {
+                    future.completeExceptionally(exception);
+                } else {
+                    future.complete(expectedValues);
+                }
+            });
+            future.whenComplete((expectedValues, exception) -> {
+                if (future.isCancelled()) {
+                    requestCount.decrementAndGet();
+                }
+            });
+
+            return future;
+        }
+
+        @Override
+        public void run() {
+            if (requestCount.compareAndSet(0, -1)) {
+                // every request was cancelled before the solve started
+                asyncSolves.compareAndSet(scenarioIndex, this, null);
+                result.cancel(false);
+                return;
+            }
+
+            try {
+                result.complete(getExpectedValues(scenario));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                // later requests either find the memoized values or start again after a failure
+                asyncSolves.compareAndSet(scenarioIndex, this, null);
+            }
+        }
+    }
+
+    /**
+     * Solves one row of the strategy chart: a player hand against each of the ten dealer up-cards (2 through 9, a
+     * ten-valued card, and an ace), in parallel. In <tt>EvaluationMode.ALL_UP_CARDS</tt>, the whole row is simulated
+     * on one set of random hands.
+     * @param playerValue the value of the player's hand
+     * @param isPlayerSoft whether the player's hand is soft
+     * @param isPair whether the player's hand is a pair
+     * @return the expected values and best decisions for the row, from a two up to an ace
+     */
+    public StrategyTable solveRow(int playerValue, boolean isPlayerSoft, boolean isPair) {
+        final List<Scenario> scenarios = new ArrayList<>();
+        final List<ForkJoinTask<Map<Decision, Double>>> tasks = new ArrayList<>();
+        for (int upCardValue = Card.TWO.getValue(); upCardValue <= Card.ACE.getValue(); upCardValue++) {
+            final Scenario scenario = new ScenarioBuilder()
+                    .setPlayerValue(playerValue)
+                    .setDealerCard(Card.getCardWithValue(upCardValue))
+                    .setSoftFlag(isPlayerSoft)
+                    .setPairFlag(isPair)
+                    .build();
+            scenarios.add(scenario);
+            tasks.add(pool.submit(() -> getExpectedValues(scenario)));
+        }
+
+        final StrategyTable table = new StrategyTable();
+        for (int i = 0; i < scenarios.size(); i++) {
+            final Scenario scenario = scenarios.get(i);
+            table.put(scenario, tasks.get(i).join(), computeBestScenarioResult(scenario, true, true));
+        }
+
+        return table;
+    }
+
+    /**
+     * Solves every scenario in <tt>Scenario.getAll()</tt>.
+     * @return the expected values and best decisions for every scenario
+     * @see #solveAll(BiConsumer)
+     */
+    public StrategyTable solveAll() {
+        return solveAll((scenario, expectedValues) -> {});
+    }
+
+    /**
+     * Solves every scenario in <tt>Scenario.getAll()</tt>. Rather than letting each scenario lazily pull in the
+     * scenarios it depends on, the scenarios are solved in layers such that every layer only depends on earlier ones:
+     * hard totals from 21 down to 11 (which only lead to higher hard totals), then soft totals from 21 down to 12 (a
+     * soft hand can become a hard one of 12 or more), then hard totals from 10 down to 4 (which become soft hands when
+     * they draw an ace), then pairs (which depend on the hands made after splitting). Each layer is solved in parallel
+     * across all dealer cards.
+     * @param scenarioListener called with the expected values of each scenario as soon as its layer is solved, in
+     *                         solving order, on the calling thread
+     * @return the expected values and best decisions for every scenario
+     */
+    public StrategyTable solveAll(BiConsumer<Scenario, Map<Decision, Double>> scenarioListener) {
+        final List<Scenario> allScenarios = Scenario.getAll();
+
+        // group the scenarios by layer, in solving order
+        final SortedMap<Integer, List<Scenario>> layers = new TreeMap<>();
+        for (Scenario scenario : allScenarios) {
+            // hard hands of 11 or more come first, then soft hands, then the other hard hands (each from the highest
+            // total down), then all of the pairs
+            final int handTypeOrder;
+            if (scenario.isPair) {
+                handTypeOrder = 3;
+            } else if (scenario.isPlayerSoft) {
+                handTypeOrder = 1;
+            } else {
+                handTypeOrder = (scenario.playerValue >= MIN_HARD_VALUE_WITHOUT_SOFT_HITS) ? 0 : 2;
+            }
+            final int layer = handTypeOrder * 22 + (scenario.isPair ? 0 : 21 - scenario.playerValue);
+
+            layers.computeIfAbsent(layer, (key) -> new ArrayList<>()).add(scenario);
+        }
+
+        for (List<Scenario> layer : layers.values()) {
+            final List<ForkJoinTask<Map<Decision, Double>>> tasks = new ArrayList<>();
+            for (Scenario scenario : layer) {
+                tasks.add(pool.submit(() -> getExpectedValues(scenario)));
+            }
+
+            for (int i = 0; i < layer.size(); i++) {
+                scenarioListener.accept(layer.get(i), tasks.get(i).join());
+            }
+        }
+
+        final StrategyTable table = new StrategyTable();
+        for (Scenario scenario : allScenarios) {
+            table.put(scenario, getExpectedValues(scenario), computeBestScenarioResult(scenario, true, true));
+        }
+
+        return table;
+    }
 }
@@ -0,0 +1,86 @@
+package main;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds a <tt>Decider</tt>. Unset options keep the defaults of <tt>new Decider(rule, simulationCount)</tt>.
+ */
+public class DeciderBuilder {
+    private Rule rule = new RuleBuilder().build();
+    private int simulationCount = 1000000;
+    private EvaluationMode evaluationMode = EvaluationMode.SIMULATION;
+    private double confidenceBound = Decider.DEFAULT_CONFIDENCE_BOUND;
+    private Long seed = null; // random unless set
+    private ExpectedValueStore store = null;
+    private ForkJoinPool pool = null; // shared by every decider unless set
+
+    public DeciderBuilder setRule(Rule rule) {
+        this.rule = rule;
+        return this;
+    }
+
+    /**
+     * @param simulationCount the number of hands to simulate per decision, or the most hands to simulate in
+     *                        <tt>EvaluationMode.ADAPTIVE</tt>
+     */
+    public DeciderBuilder setSimulationCount(int simulationCount) {
+        this.simulationCount = simulationCount;
+        return this;
+    }
+
+    public DeciderBuilder setEvaluationMode(EvaluationMode evaluationMode) {
+        this.evaluationMode = evaluationMode;
+        return this;
+    }
+
+    /**
+     * @param confidenceBound the number of standard errors that confidence intervals span on either side of a mean.
+     *                        In <tt>EvaluationMode.ADAPTIVE</tt>, simulation stops once the best decision leads every
+     *                        other one by this many standard errors.
+     */
+    public DeciderBuilder setConfidenceBound(double confidenceBound) {
+        this.confidenceBound = confidenceBound;
+        return this;
+    }
+
+    /**
+     * @param seed the seed of every random number used in simulation, which makes the results reproducible
+     */
+    public DeciderBuilder setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param store where expected values are kept between runs. The decider starts with every expected value that the
+     *              store holds for the same rules and settings, and appends the ones it simulates. Without a seed,
+     *              values simulated with any seed are shared.
+     */
+    public DeciderBuilder setStore(ExpectedValueStore store) {
+        this.store = store;
+        return this;
+    }
+
+    /**
+     * @param pool the threads that simulate hands, which the caller shuts down when it is through with them
+     */
+    public DeciderBuilder setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    public Decider build() {
+        final long deciderSeed = (seed == null ? new SplittableRandom().nextLong() : seed);
+        final Decider decider = (pool == null)
+                ? new Decider(rule, simulationCount, evaluationMode, confidenceBound, deciderSeed)
+                : new Decider(rule, simulationCount, evaluationMode, confidenceBound, deciderSeed, pool);
+
+        if (store != null) {
+            decider.useStore(store, ExpectedValueStore.getKey(rule, evaluationMode, simulationCount, confidenceBound,
+                    seed));
+        }
+
+        return decider;
+    }
+}
@@ -0,0 +1,327 @@
+package main;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Counts the work done by a <tt>Decider</tt>: the hands it deals, the trials it runs for each decision and scenario,
+ * and how long each request for an expected value takes. Counters are updated once per
+ * run of trials rather than once per hand, and nothing is computed for observers until they ask for a snapshot, read
+ * an MBean attribute, or register a progress listener.
+ */
+public class DeciderMetrics implements DeciderMetricsMXBean {
+    private static final Decision[] DECISIONS = Decision.values();
+
+    // latencies are counted in buckets of powers of two: bucket i holds latencies from 2^i up to 2^(i + 1) ns
+    private static final int LATENCY_BUCKET_COUNT = Long.SIZE;
+
+    private final LongAdder handCount = new LongAdder();
+    private final LongAdder shoeRebuildCount = new LongAdder();
+    private final LongAdder[] trialCounts = new LongAdder[DECISIONS.length];
+    private final AtomicLongArray scenarioTrialCounts = new AtomicLongArray(ScenarioIndex.SIZE);
+    private final AtomicLongArray scenarioShoeRebuildCounts = new AtomicLongArray(ScenarioIndex.SIZE);
+    private final LongAdder[][] latencyBuckets = new LongAdder[DECISIONS.length][LATENCY_BUCKET_COUNT];
+    private final LongAccumulator[] maxLatencies = new LongAccumulator[DECISIONS.length];
+
+    private final List<Consumer<Long>> progressListeners = new CopyOnWriteArrayList<>();
+
+    // the last hand count passed to the progress listeners, guarded by progressListeners
+    private long notifiedHandCount = 0;
+
+    DeciderMetrics() {
+        for (int i = 0; i < DECISIONS.length; i++) {
+            trialCounts[i] = new LongAdder();
+            maxLatencies[i] = new LongAccumulator(Math::max, 0);
+            for (int j = 0; j < LATENCY_BUCKET_COUNT; j++) {
+                latencyBuckets[i][j] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Records a run of trials, each of which dealt one hand and played every decision out on it.
+     * @param decisions the decisions played out
+     * @param scenarioIndex the index of the scenario
+     * @param trialCount the number of trials
+     * @param shoeRebuildCount the number of times that a shoe was refilled for the trials
+     */
+    void recordTrials(Decision[] decisions, int scenarioIndex, int trialCount, int shoeRebuildCount) {
+        recordTrials(decisions, new int[]{scenarioIndex}, trialCount, shoeRebuildCount);
+    }
+
+    /**
+     * Records a run of trials, each of which dealt one hand and played every decision out on it under each of several
+     * scenarios (see <tt>EvaluationMode.ALL_UP_CARDS</tt>). Each hand counts once toward the hand count and once
+     * toward the trials of every scenario, and so does each shoe refill.
+     * @param decisions the decisions played out
+     * @param scenarioIndices the indices of the scenarios
+     * @param trialCount the number of trials
+     * @param shoeRebuildCount the number of times that a shoe was refilled for the trials
+     */
+    void recordTrials(Decision[] decisions, int[] scenarioIndices, int trialCount, int shoeRebuildCount) {
+        handCount.add(trialCount);
+        this.shoeRebuildCount.add(shoeRebuildCount);
+        for (int scenarioIndex : scenarioIndices) {
+            scenarioTrialCounts.addAndGet(scenarioIndex, trialCount);
+            if (shoeRebuildCount > 0) {
+                scenarioShoeRebuildCounts.addAndGet(scenarioIndex, shoeRebuildCount);
+            }
+        }
+        for (Decision decision : decisions) {
+            trialCounts[decision.ordinal()].add((long) trialCount * scenarioIndices.length);
+        }
+
+        if (!progressListeners.isEmpty()) {
+            notifyProgressListeners();
+        }
+    }
+
+    /**
+     * Passes the hand count to the progress listeners. Runs of trials finish on several threads at once, so the count
+     * is read and passed on while holding a lock, and a count that is no larger than the last one is not passed on.
+     * The listeners therefore never see the count go backward.
+     */
+    private void notifyProgressListeners() {
+        synchronized (progressListeners) {
+            final long totalHandCount = handCount.sum();
+            if (totalHandCount <= notifiedHandCount) {
+                return;
+            }
+
+            notifiedHandCount = totalHandCount;
+            for (Consumer<Long> listener : progressListeners) {
+                listener.accept(totalHandCount);
+            }
+        }
+    }
+
+    /**
+     * Records how long a request for the expected value of a decision took, including any time spent waiting for it
+     * to be simulated.
+     * @param decision the decision
+     * @param nanos the latency, in nanoseconds
+     */
+    void recordLatency(Decision decision, long nanos) {
+        final int bucket = (nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos));
+        latencyBuckets[decision.ordinal()][bucket].increment();
+        maxLatencies[decision.ordinal()].accumulate(nanos);
+    }
+
+    /**
+     * Adds a listener that is called with the number of hands dealt so far each time a run of trials finishes. It is
+     * called on the simulating thread, one call at a time and with a larger count each time, so it should return
+     * quickly.
+     * @param listener the listener
+     */
+    public void addProgressListener(Consumer<Long> listener) {
+        progressListeners.add(listener);
+    }
+
+    public void removeProgressListener(Consumer<Long> listener) {
+        progressListeners.remove(listener);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     * @param name the name of the decider, which becomes the <tt>name</tt> key of the object name
+     * @return the object name, which is needed to unregister the MBean
+     * @throws IllegalStateException if the MBean cannot be registered (for example, because the name is taken)
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            final ObjectName objectName = new ObjectName("main:type=Decider,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return a copy of every counter, taken now
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    @Override
+    public long getHandCount() {
+        return handCount.sum();
+    }
+
+    @Override
+    public long getShoeRebuildCount() {
+        return shoeRebuildCount.sum();
+    }
+
+    @Override
+    public Map<String, Long> getTrialCounts() {
+        final Snapshot snapshot = snapshot();
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (Decision decision : DECISIONS) {
+            result.put(decision.name(), snapshot.getTrialCount(decision));
+        }
+
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getMedianLatencyNanos() {
+        final Snapshot snapshot = snapshot();
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (Decision decision : DECISIONS) {
+            result.put(decision.name(), snapshot.getLatencyPercentileNanos(decision, 0.5));
+        }
+
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getMaxLatencyNanos() {
+        final Snapshot snapshot = snapshot();
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (Decision decision : DECISIONS) {
+            result.put(decision.name(), snapshot.getMaxLatencyNanos(decision));
+        }
+
+        return result;
+    }
+
+    /**
+     * The counters of a decider at one point in time. The counters are read one at a time while the decider may still
+     * be running, so they can be slightly out of step with each other.
+     */
+    public static class Snapshot {
+        private final long handCount;
+        private final long shoeRebuildCount;
+        private final long[] trialCounts = new long[DECISIONS.length];
+        private final long[] scenarioTrialCounts = new long[ScenarioIndex.SIZE];
+        private final long[] scenarioShoeRebuildCounts = new long[ScenarioIndex.SIZE];
+        private final long[][] latencyBuckets = new long[DECISIONS.length][LATENCY_BUCKET_COUNT];
+        private final long[] maxLatencies = new long[DECISIONS.length];
+
+        private Snapshot(DeciderMetrics metrics) {
+            this.handCount = metrics.handCount.sum();
+            this.shoeRebuildCount = metrics.shoeRebuildCount.sum();
+            for (int i = 0; i < DECISIONS.length; i++) {
+                trialCounts[i] = metrics.trialCounts[i].sum();
+                maxLatencies[i] = metrics.maxLatencies[i].get();
+                for (int j = 0; j < LATENCY_BUCKET_COUNT; j++) {
+                    latencyBuckets[i][j] = metrics.latencyBuckets[i][j].sum();
+                }
+            }
+            for (int i = 0; i < ScenarioIndex.SIZE; i++) {
+                scenarioTrialCounts[i] = metrics.scenarioTrialCounts.get(i);
+                scenarioShoeRebuildCounts[i] = metrics.scenarioShoeRebuildCounts.get(i);
+            }
+        }
+
+        /**
+         * @return the number of hands dealt
+         */
+        public long getHandCount() {
+            return handCount;
+        }
+
+        /**
+         * @return the number of times that a shoe was refilled to deal a hand. Hands from an infinite deck that are
+         * only doubled down on are dealt from card counts instead (see <tt>DoubleDownKernel</tt>).
+         */
+        public long getShoeRebuildCount() {
+            return shoeRebuildCount;
+        }
+
+        /**
+         * @param decision a decision
+         * @return the number of trials in which <tt>decision</tt> was played out
+         */
+        public long getTrialCount(Decision decision) {
+            return trialCounts[decision.ordinal()];
+        }
+
+        /**
+         * @param scenario a scenario
+         * @return the number of hands dealt for the scenario
+         */
+        public long getTrialCount(Scenario scenario) {
+            return scenarioTrialCounts[ScenarioIndex.of(scenario)];
+        }
+
+        /**
+         * @param scenario a scenario
+         * @return the number of times that a shoe was refilled to deal a hand for the scenario
+         */
+        public long getShoeRebuildCount(Scenario scenario) {
+            return scenarioShoeRebuildCounts[ScenarioIndex.of(scenario)];
+        }
+
+        /**
+         * @return the number of hands dealt for every scenario that was simulated, from the most hands to the fewest
+         */
+        public Map<Scenario, Long> getScenarioTrialCounts() {
+            final List<Integer> indices = new ArrayList<>();
+            for (int i = 0; i < ScenarioIndex.SIZE; i++) {
+                if (scenarioTrialCounts[i] > 0) {
+                    indices.add(i);
+                }
+            }
+            indices.sort((a, b) -> Long.compare(scenarioTrialCounts[b], scenarioTrialCounts[a]));
+
+            final Map<Scenario, Long> result = new LinkedHashMap<>();
+            for (int index : indices) {
+                result.put(ScenarioIndex.toScenario(index), scenarioTrialCounts[index]);
+            }
+
+            return result;
+        }
+
+        /**
+         * @param decision a decision
+         * @return the number of requests for the expected value of <tt>decision</tt> that have finished
+         */
+        public long getRequestCount(Decision decision) {
+            long requestCount = 0;
+            for (long bucketCount : latencyBuckets[decision.ordinal()]) {
+                requestCount += bucketCount;
+            }
+
+            return requestCount;
+        }
+
+        /**
+         * Estimates a percentile of the latency of requests for the expected value of a decision. Latencies are kept
+         * in buckets that double in size, so the result is the upper end of the bucket that holds the percentile.
+         * @param decision a decision
+         * @param percentile a number from 0 to 1
+         * @return the latency, in nanoseconds, or 0 if there have been no requests
+         */
+        public long getLatencyPercentileNanos(Decision decision, double percentile) {
+            final long requestCount = getRequestCount(decision);
+            if (requestCount == 0) {
+                return 0;
+            }
+
+            final long rank = Math.max(1, (long) Math.ceil(percentile * requestCount));
+            long seenCount = 0;
+            for (int bucket = 0; bucket < LATENCY_BUCKET_COUNT; bucket++) {
+                seenCount += latencyBuckets[decision.ordinal()][bucket];
+                if (seenCount >= rank) {
+                    return Math.min(maxLatencies[decision.ordinal()], (1L << (bucket + 1)) - 1);
+                }
+            }
+
+            return maxLatencies[decision.ordinal()];
+        }
+
+        public long getMaxLatencyNanos(Decision decision) {
+            return maxLatencies[decision.ordinal()];
+        }
+    }
+}
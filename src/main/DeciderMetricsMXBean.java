@@ -0,0 +1,21 @@
+package main;
+
+import java.util.Map;
+
+/**
+ * The JMX view of a decider's <tt>DeciderMetrics</tt>. Every attribute is computed when it is read.
+ */
+public interface DeciderMetricsMXBean {
+    long getHandCount();
+
+    long getShoeRebuildCount();
+
+    // keyed by decision name
+    Map<String, Long> getTrialCounts();
+
+    // keyed by decision name
+    Map<String, Long> getMedianLatencyNanos();
+
+    // keyed by decision name
+    Map<String, Long> getMaxLatencyNanos();
+}
@@ -0,0 +1,109 @@
+package main;
+
+import java.util.SplittableRandom;
+
+/**
+ * Simulates doubling down on many hands from an infinite deck at once. A double down only needs the player's hand and
+ * one more card, so rather than dealing each hand from a refilled <tt>Shoe</tt>, a batch of hands is picked as card
+ * counts and kept in structure-of-arrays form: one array each for the hard values, the ace counts, and the drawn cards.
+ * The loop that settles the hands is then free of branches and object accesses, which lets the JIT unroll it.
+ *
+ * From an infinite deck, neither the card drawn nor the dealer's draws depend on the player's cards, so a hand is
+ * settled by its final total alone. From a finite shoe, both depend on every card in the hand, so those double downs
+ * are played out on a shoe like any other decision.
+ */
+final class DoubleDownKernel {
+    static final int BATCH_SIZE = 1024;
+
+    // a hard value plus one card is at most 21 + 10, and soft values are at most 21
+    private static final int MAX_TOTAL = 31;
+
+    private final HandGenerator handGenerator;
+    private final Scenario scenario;
+    private static final Card[] CARDS = Card.values();
+
+    // the units won by doubling down on each final total, including busts
+    private final double[] doubleValues = new double[MAX_TOTAL + 1];
+
+    // the batch
+    private final int[] hardValues = new int[BATCH_SIZE];
+    private final int[] aceCounts = new int[BATCH_SIZE];
+    private final int[] drawnValues = new int[BATCH_SIZE];
+    private final double[] unitsWon = new double[BATCH_SIZE];
+
+    /**
+     * Constructor.
+     * @param handGenerator the generator for the rules' shoe
+     * @param rule the rules of the game
+     * @param scenario the scenario to simulate
+     * @param dealerOutcomeTable the outcome table of the scenario's up-card
+     * @throws IllegalArgumentException if the rules do not call for an infinite deck
+     */
+    DoubleDownKernel(HandGenerator handGenerator, Rule rule, Scenario scenario, DealerOutcomeTable dealerOutcomeTable) {
+        if (!rule.isInfiniteDeck()) {
+            throw new IllegalArgumentException("Double downs from a finite shoe depend on the player's cards");
+        }
+
+        this.handGenerator = handGenerator;
+        this.scenario = scenario;
+
+        for (int total = 0; total <= MAX_TOTAL; total++) {
+            doubleValues[total] = (total > 21 ? -2 : 2 * dealerOutcomeTable.getStandValue(total));
+        }
+    }
+
+    /**
+     * Simulates doubling down on random hands of the scenario.
+     * @param trialCount the number of hands
+     * @param random the source of every random card
+     * @return the statistics of the units won
+     */
+    TrialStatistics simulate(int trialCount, SplittableRandom random) {
+        final TrialStatistics statistics = new TrialStatistics();
+        for (int firstTrial = 0; firstTrial < trialCount; firstTrial += BATCH_SIZE) {
+            final int batchSize = Math.min(BATCH_SIZE, trialCount - firstTrial);
+            dealBatch(batchSize, random);
+            settleBatch(batchSize);
+
+            double sum = 0;
+            double squareSum = 0;
+            for (int i = 0; i < batchSize; i++) {
+                sum += unitsWon[i];
+                squareSum += unitsWon[i] * unitsWon[i];
+            }
+            statistics.addTrials(Decision.DOUBLE, sum, squareSum, batchSize);
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Picks the player's hand and the card he doubles down on for each trial in the batch.
+     */
+    private void dealBatch(int batchSize, SplittableRandom random) {
+        for (int i = 0; i < batchSize; i++) {
+            final long drawnCards = handGenerator.pickCardValues(scenario, random);
+
+            int hardValue = 0;
+            for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                hardValue += CompositionKey.getCount(drawnCards, value) * (value == Card.ACE.getValue() ? 1 : value);
+            }
+            hardValues[i] = hardValue;
+            aceCounts[i] = CompositionKey.getCount(drawnCards, Card.ACE.getValue());
+            drawnValues[i] = CARDS[random.nextInt(CARDS.length)].getValue();
+        }
+    }
+
+    /**
+     * Adds the drawn card to each hand and looks up the units won on the final total.
+     */
+    private void settleBatch(int batchSize) {
+        for (int i = 0; i < batchSize; i++) {
+            final int cardValue = drawnValues[i];
+            final int isAce = (cardValue == Card.ACE.getValue() ? 1 : 0);
+            final int hardValue = hardValues[i] + cardValue - 10 * isAce; // the new ace counts as 1
+            final int softBonus = (aceCounts[i] + isAce > 0 && hardValue <= 11 ? 10 : 0);
+            unitsWon[i] = doubleValues[hardValue + softBonus];
+        }
+    }
+}
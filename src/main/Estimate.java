@@ -0,0 +1,56 @@
+package main;
+
+/**
+ * An expected value along with the confidence interval around it. Values that are computed exactly have an interval
+ * of width zero.
+ */
+public class Estimate {
+    private final double mean;
+    private final double halfWidth;
+    private final long trialCount;
+
+    public Estimate(double mean, double halfWidth, long trialCount) {
+        this.mean = mean;
+        this.halfWidth = halfWidth;
+        this.trialCount = trialCount;
+    }
+
+    /**
+     * @param value the exact value
+     * @return an estimate with no uncertainty
+     */
+    public static Estimate exact(double value) {
+        return new Estimate(value, 0, 0);
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the distance from the mean to either end of the confidence interval
+     */
+    public double getHalfWidth() {
+        return halfWidth;
+    }
+
+    public double getLowerBound() {
+        return mean - halfWidth;
+    }
+
+    public double getUpperBound() {
+        return mean + halfWidth;
+    }
+
+    /**
+     * @return the number of simulated hands behind the estimate, or 0 if it was computed exactly
+     */
+    public long getTrialCount() {
+        return trialCount;
+    }
+
+    @Override
+    public String toString() {
+        return (halfWidth == 0 ? Double.toString(mean) : mean + " +/- " + halfWidth);
+    }
+}
@@ -0,0 +1,17 @@
+package main;
+
+/**
+ * The ways a <tt>Decider</tt> can compute expected values.
+ *
+ * With a finite shoe, <tt>EXACT</tt> does not compute the same expected values as the other modes. The simulated
+ * modes take the player's cards out of the shoe before the dealer draws, while the exact evaluator only takes out the
+ * up-card (and the pair when splitting), so the two differ by the effect of removing the player's cards, which is a few
+ * thousandths of a unit with six decks. With an infinite deck, the modes compute the same expected values.
+ */
+public enum EvaluationMode {
+    SIMULATION, // Monte Carlo simulation of random hands
+    COMMON_RANDOM_NUMBERS, // like SIMULATION, but every decision is simulated on the same random hands
+    ADAPTIVE, // like COMMON_RANDOM_NUMBERS, but stops once the best decision is statistically settled
+    EXACT, // enumeration over the shoe composition, leaving the player's cards in the shoe (see ExactEvaluator)
+    ALL_UP_CARDS // like COMMON_RANDOM_NUMBERS, but a chart row is simulated against every up-card on the same hands
+}
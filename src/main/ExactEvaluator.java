@@ -0,0 +1,232 @@
+package main;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes expected values by enumerating over the shoe composition instead of simulating random hands.
+ *
+ * For each dealer up-card, the probability of every final dealer total comes from a <tt>DealerOutcomeTable</tt>. The
+ * player's stand, hit, double, and split values then follow by recursion over the player's hand total. Like a
+ * <tt>Scenario</tt>, the results are total-dependent: the dealer's up-card is removed from the shoe, but the cards
+ * making up the player's hand are not. The one exception is a split, whose hands draw from a shoe without both cards of
+ * the pair, as in <tt>Decider</tt>. Simulated expected values also take the player's cards out of the shoe before the
+ * dealer draws, so with a finite shoe they differ from these (see <tt>EvaluationMode</tt>).
+ */
+public class ExactEvaluator {
+    // hands are encoded as (value << 1) | soft so that they can index into arrays; values above 21 are busts
+    private static final int HAND_CODE_COUNT = 64;
+
+    private final Rule rule;
+    private final UpCardTable[] upCardTables = new UpCardTable[Card.ACE.getValue() + 1];
+
+    public ExactEvaluator(Rule rule) {
+        this(rule, DealerOutcomeTable.getShoeValueCounts(rule));
+    }
+
+    /**
+     * Constructor for a shoe that does not hold full decks, such as the shoe left after part of it has been dealt.
+     * @param rule the rules of the game (the deck count is ignored)
+     * @param valueCounts the number of cards of each value (2-11, where 11 is an ace) in the shoe, which must hold at
+     *                    least one card of each value, or <tt>null</tt> for an infinite deck
+     */
+    public ExactEvaluator(Rule rule, int[] valueCounts) {
+        this.rule = rule;
+
+        for (int upCardValue = Card.TWO.getValue(); upCardValue <= Card.ACE.getValue(); upCardValue++) {
+            final Card upCard = Card.getCardWithValue(upCardValue);
+            upCardTables[upCardValue] = new UpCardTable(valueCounts, upCardValue,
+                    DealerOutcomeTable.get(upCard, rule.dealerHitsSoft17(), valueCounts));
+        }
+    }
+
+    /**
+     * Computes the expected value of hitting, standing, doubling down, splitting, and surrendering under a given
+     * scenario. The values mean the same thing as those computed by simulation in <tt>Decider</tt>.
+     * @param scenario the scenario to compute the expected values for
+     * @return a map containing the expected values under the given scenario
+     */
+    public Map<Decision, Double> computeExpectedValues(Scenario scenario) {
+        if (scenario.playerValue < 4 || scenario.playerValue > 21
+                || (scenario.isPlayerSoft && scenario.playerValue < 12)) {
+            throw new IllegalArgumentException("No hand corresponds to " + scenario);
+        }
+
+        final UpCardTable table = upCardTables[scenario.dealerCard.getValue()];
+        final int hand = encodeHand(scenario.playerValue, scenario.isPlayerSoft);
+
+        final Map<Decision, Double> expectedValueMap = new HashMap<>();
+        expectedValueMap.put(Decision.HIT, table.hitValues[hand]);
+        expectedValueMap.put(Decision.STAND, table.standValues[hand]);
+        expectedValueMap.put(Decision.SPLIT, scenario.isPair
+                ? table.splitValues[getSplitCardValue(scenario)]
+                : Integer.MIN_VALUE);
+        expectedValueMap.put(Decision.DOUBLE, table.doubleValues[hand]);
+        expectedValueMap.put(Decision.SURRENDER, -0.5);
+
+        return expectedValueMap;
+    }
+
+    private static int getSplitCardValue(Scenario scenario) {
+        return (scenario.playerValue == 12 && scenario.isPlayerSoft)
+                ? Card.ACE.getValue() // a soft 12 is a pair of aces
+                : scenario.playerValue / 2;
+    }
+
+    private static int encodeHand(int value, boolean isSoft) {
+        return (value << 1) | (isSoft ? 1 : 0);
+    }
+
+    private static int getHandValue(int hand) {
+        return hand >> 1;
+    }
+
+    private static boolean isSoft(int hand) {
+        return (hand & 1) == 1;
+    }
+
+    // a soft hand always counts an ace as 11, so it is worth at least 12
+    private static boolean isPlayable(int hand) {
+        return getHandValue(hand) <= 21 && !(isSoft(hand) && getHandValue(hand) < 12);
+    }
+
+    /**
+     * Adds a card to a hand.
+     * @param hand the encoded hand
+     * @param cardValue the value of the card (2-11, where 11 is an ace)
+     * @return the encoded hand after adding the card, whose value is above 21 if the hand busts
+     */
+    private static int addCard(int hand, int cardValue) {
+        // Explanation: only a soft hand has an ace that still counts as 11. A hard hand may contain aces, but they
+        // already count as 1 and can never count as 11 again, since that only happens when the rest of the hand is
+        // <= 10.
+        boolean hasAce = isSoft(hand);
+        int hardValue = hasAce ? getHandValue(hand) - 10 : getHandValue(hand);
+
+        if (cardValue == Card.ACE.getValue()) {
+            hasAce = true;
+            hardValue += 1;
+        } else {
+            hardValue += cardValue;
+        }
+
+        if (hasAce && hardValue + 10 <= 21) {
+            return encodeHand(hardValue + 10, true);
+        } else {
+            return encodeHand(hardValue, false);
+        }
+    }
+
+    /**
+     * Holds every expected value against one dealer up-card.
+     */
+    private class UpCardTable {
+        // the number of cards of each value in the shoe without the up-card, or null for an infinite deck
+        private final int[] valueCounts;
+
+        // the probability of the player drawing a card of each value
+        private final double[] drawProbabilities;
+
+        private final double[] standValues = new double[HAND_CODE_COUNT];
+        private final double[] hitValues = new double[HAND_CODE_COUNT];
+        private final double[] doubleValues = new double[HAND_CODE_COUNT];
+        private final double[] splitValues = new double[Card.ACE.getValue() + 1];
+
+        UpCardTable(int[] shoeValueCounts, int upCardValue, DealerOutcomeTable dealerOutcomeTable) {
+            if (shoeValueCounts == null) {
+                valueCounts = null;
+            } else {
+                valueCounts = shoeValueCounts.clone();
+                valueCounts[upCardValue] -= 1;
+            }
+            drawProbabilities = getDrawProbabilities(valueCounts);
+
+            Arrays.fill(hitValues, Double.NaN);
+            for (int hand = 0; hand < HAND_CODE_COUNT; hand++) {
+                if (isPlayable(hand)) {
+                    standValues[hand] = dealerOutcomeTable.getStandValue(getHandValue(hand));
+                }
+            }
+            for (int hand = 0; hand < HAND_CODE_COUNT; hand++) {
+                if (isPlayable(hand)) {
+                    hitValues[hand] = computeHitValue(hand);
+                    doubleValues[hand] = computeDoubleValue(hand);
+                }
+            }
+            for (int cardValue = Card.TWO.getValue(); cardValue <= Card.ACE.getValue(); cardValue++) {
+                splitValues[cardValue] = computeSplitValue(cardValue);
+            }
+        }
+
+        // hit once, then hit or stand with perfect play
+        private double computeHitValue(int hand) {
+            if (!Double.isNaN(hitValues[hand])) {
+                return hitValues[hand];
+            }
+
+            double value = 0;
+            for (int cardValue = Card.TWO.getValue(); cardValue <= Card.ACE.getValue(); cardValue++) {
+                final int newHand = addCard(hand, cardValue);
+                value += drawProbabilities[cardValue] * (getHandValue(newHand) > 21
+                        ? -1
+                        : Math.max(standValues[newHand], computeHitValue(newHand)));
+            }
+
+            hitValues[hand] = value;
+            return value;
+        }
+
+        // take exactly one card, then stand
+        private double computeDoubleValue(int hand) {
+            double value = 0;
+            for (int cardValue = Card.TWO.getValue(); cardValue <= Card.ACE.getValue(); cardValue++) {
+                final int newHand = addCard(hand, cardValue);
+                value += drawProbabilities[cardValue] * (getHandValue(newHand) > 21 ? -2 : 2 * standValues[newHand]);
+            }
+
+            return value;
+        }
+
+        // the probability of drawing a card of each value from a shoe with the given composition
+        private double[] getDrawProbabilities(int[] valueCounts) {
+            final double[] probabilities = new double[Card.ACE.getValue() + 1];
+            if (valueCounts == null) {
+                for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                    probabilities[value] = DealerOutcomeTable.getInfiniteDeckProbability(value);
+                }
+                return probabilities;
+            }
+
+            int cardsInShoe = 0;
+            for (int count : valueCounts) {
+                cardsInShoe += count;
+            }
+            for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+                probabilities[value] = (double) valueCounts[value] / cardsInShoe;
+            }
+            return probabilities;
+        }
+
+        // the split hands draw without both cards of the pair, like Decider.getSplitDrawProbabilities
+        private double computeSplitValue(int splitCardValue) {
+            int[] splitValueCounts = null;
+            if (valueCounts != null) {
+                splitValueCounts = valueCounts.clone();
+                splitValueCounts[splitCardValue] = Math.max(0, splitValueCounts[splitCardValue] - 2);
+            }
+
+            return new SplitEvaluator(splitCardValue, rule.getMaxSplitHands(), getDrawProbabilities(splitValueCounts),
+                    cardValue -> standValues[getSplitHand(splitCardValue, cardValue)],
+                    cardValue -> {
+                        final int hand = getSplitHand(splitCardValue, cardValue);
+                        return Math.max(standValues[hand], Math.max(hitValues[hand], doubleValues[hand]));
+                    }).getValue();
+        }
+
+        // the two-card hand made after a split
+        private int getSplitHand(int splitCardValue, int cardValue) {
+            return addCard(addCard(encodeHand(0, false), splitCardValue), cardValue);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package main;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only file of simulated expected values, so that a <tt>Decider</tt> does not simulate a scenario again
+ * after the JVM restarts. Every value is stored under a key that hashes every <tt>Rule</tt> field along with the
+ * simulation settings, so one file can hold the results of any number of rule sets.
+ *
+ * The file starts with a header and is followed by fixed-size records. A record that was only partly written (for
+ * example, because the process was killed) is dropped when the file is opened.
+ */
+public class ExpectedValueStore implements Closeable {
+    private static final int MAGIC = 0x424a4556; // "BJEV"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    // stands in for the deck count of an infinite deck in a settings key
+    private static final long INFINITE_DECK_KEY = -1;
+
+    // settings key (8), scenario index (2), decision ordinal (1), mean (8), half width (8), trial count (8)
+    private static final int RECORD_SIZE = 35;
+
+    private final FileChannel channel;
+
+    // the records read when the file was opened or appended since, grouped by settings key
+    private final Map<Long, List<Entry>> entriesByKey = new HashMap<>();
+
+    private ExpectedValueStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        readEntries();
+    }
+
+    /**
+     * Opens a store, creating the file if it does not exist.
+     * @param file the file holding the store
+     * @return the store
+     * @throws IOException if the file cannot be read or written, or if it is not a store
+     */
+    public static ExpectedValueStore open(Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new ExpectedValueStore(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Computes the key that results are stored under.
+     * @param rule the rules of the game
+     * @param evaluationMode how expected values are computed
+     * @param simulationCount the number of hands simulated per decision (or the most hands, if adaptive)
+     * @param confidenceBound the number of standard errors that confidence intervals span
+     * @param seed the seed of the simulation, or <tt>null</tt> if the results do not need to be reproducible (in which
+     *             case results made with any seed can be shared)
+     * @return the key
+     */
+    public static long getKey(Rule rule, EvaluationMode evaluationMode, int simulationCount, double confidenceBound,
+                              Long seed) {
+        long key = VERSION;
+        // an infinite deck ignores the deck count and penetration, so it takes the place of both
+        key = Decider.mix(key ^ (rule.isInfiniteDeck() ? INFINITE_DECK_KEY : rule.getDeckCount()));
+        key = Decider.mix(key ^ Double.doubleToLongBits(rule.isInfiniteDeck() ? 1.0 : rule.getPenetrationValue()));
+        key = Decider.mix(key ^ (rule.dealerHitsSoft17() ? 1 : 0));
+        key = Decider.mix(key ^ (rule.canSurrender() ? 1 : 0));
+        key = Decider.mix(key ^ rule.getMaxSplitHands());
+        key = Decider.mix(key ^ evaluationMode.ordinal());
+        key = Decider.mix(key ^ simulationCount);
+        key = Decider.mix(key ^ Double.doubleToLongBits(confidenceBound));
+        key = Decider.mix(key ^ (seed == null ? 0 : 1));
+        return Decider.mix(key ^ (seed == null ? 0 : seed));
+    }
+
+    /**
+     * Gets every estimate stored under a key.
+     * @param key the settings key
+     * @return the stored entries, oldest first. A later entry for the same scenario and decision replaces an earlier
+     * one.
+     */
+    public synchronized List<Entry> getEntries(long key) {
+        return new ArrayList<>(entriesByKey.getOrDefault(key, new ArrayList<>()));
+    }
+
+    /**
+     * Appends the estimates of decisions under a scenario to the file in a single write.
+     * @param key the settings key
+     * @param scenarioIndex the index of the scenario
+     * @param estimates the estimate of each decision
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public synchronized void append(long key, int scenarioIndex, Map<Decision, Estimate> estimates) {
+        final ByteBuffer records = ByteBuffer.allocate(estimates.size() * RECORD_SIZE);
+        for (Map.Entry<Decision, Estimate> entry : estimates.entrySet()) {
+            final Estimate estimate = entry.getValue();
+            records.putLong(key)
+                    .putShort((short) scenarioIndex)
+                    .put((byte) entry.getKey().ordinal())
+                    .putDouble(estimate.getMean())
+                    .putDouble(estimate.getHalfWidth())
+                    .putLong(estimate.getTrialCount());
+        }
+        records.flip();
+
+        try {
+            final long position = channel.size();
+            while (records.hasRemaining()) {
+                channel.write(records, position + records.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final List<Entry> entries = entriesByKey.computeIfAbsent(key, (k) -> new ArrayList<>());
+        for (Map.Entry<Decision, Estimate> entry : estimates.entrySet()) {
+            entries.add(new Entry(scenarioIndex, entry.getKey(), entry.getValue()));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void readEntries() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() < HEADER_SIZE) {
+            // a new (or empty) file
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            return;
+        }
+
+        channel.read(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not an expected value store");
+        }
+
+        // drop a record that was cut off
+        final long recordCount = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        channel.truncate(HEADER_SIZE + recordCount * RECORD_SIZE);
+
+        final ByteBuffer records = ByteBuffer.allocate((int) (recordCount * RECORD_SIZE));
+        while (records.hasRemaining()) {
+            if (channel.read(records, HEADER_SIZE + records.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        records.flip();
+
+        final Decision[] decisions = Decision.values();
+        for (long i = 0; i < recordCount; i++) {
+            final long key = records.getLong();
+            final int scenarioIndex = records.getShort();
+            final Decision decision = decisions[records.get()];
+            final Estimate estimate = new Estimate(records.getDouble(), records.getDouble(), records.getLong());
+
+            entriesByKey.computeIfAbsent(key, (k) -> new ArrayList<>()).add(new Entry(scenarioIndex, decision, estimate));
+        }
+    }
+
+    /**
+     * A stored estimate of the expected value of a decision under a scenario.
+     */
+    public static class Entry {
+        private final int scenarioIndex;
+        private final Decision decision;
+        private final Estimate estimate;
+
+        Entry(int scenarioIndex, Decision decision, Estimate estimate) {
+            this.scenarioIndex = scenarioIndex;
+            this.decision = decision;
+            this.estimate = estimate;
+        }
+
+        public int getScenarioIndex() {
+            return scenarioIndex;
+        }
+
+        public Decision getDecision() {
+            return decision;
+        }
+
+        public Estimate getEstimate() {
+            return estimate;
+        }
+    }
+}
@@ -2,13 +2,16 @@ package main;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.concurrent.Future;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Created by Brian on 1/30/2017.
  */
 public class GUI {
     private static final int SIMULATION_COUNT = 1000000;
+    private static final int STATUS_UPDATE_INTERVAL = 500; // ms
 
     private JComboBox<String> constructPlayerDropdown() {
         final JComboBox<String> box = new JComboBox<>();
@@ -73,49 +76,74 @@ public class GUI {
         frame.setVisible(true);
 
         final Rule r = new RuleBuilder()
-                .setDeckCount(1000)
-                .setPenetrationValue(1.0)
+                .setInfiniteDeck(true)
                 .setDealerHitsSoft17(false)
                 .setCanSurrender(false)
                 .setMaxSplitHands(4)
                 .build();
-        final Decider d = new Decider(r, SIMULATION_COUNT);
+        final Decider d = new DeciderBuilder()
+                .setRule(r)
+                .setSimulationCount(SIMULATION_COUNT) // at most
+                .setEvaluationMode(EvaluationMode.ADAPTIVE)
+                .build();
+        // the last request, which a new click cancels if it is still waiting for the pool
+        final CompletableFuture<?>[] pendingResult = {CompletableFuture.completedFuture(null)};
         solveButton.addActionListener((e) -> {
-            new Thread(() -> {
-                // get the info required to build a scenario
-                final String selectedPlayerHand = (String) playerBox.getSelectedItem();
-                final int playerValue = Integer.valueOf(selectedPlayerHand.split(" ")[1]);
-                final boolean isSoft = selectedPlayerHand.split(" ")[0].equals("Soft");
-                final boolean isPair = isPairBox.isSelected();
-                final String selectedDealerCard = (String) dealerBox.getSelectedItem();
-                final Card dealerCard = selectedDealerCard.equals("Ace")
-                        ? Card.ACE
-                        : Card.getCardWithValue(Integer.valueOf(selectedDealerCard));
-
-                // build it
-                final Scenario scenario = new Scenario();
-                scenario.playerValue = playerValue;
-                scenario.dealerCard = dealerCard;
-                scenario.isPlayerSoft = isSoft;
-                scenario.isPair = isPair;
-
-                // solve
-                final Future<?> statusUpdater = d.addStatusListener((opsPerSecond) -> {
-                    status.setText("solving " + scenario + " (" + opsPerSecond + " hands per second)");
-                });
-
-                try {
-                    final long startTime = System.nanoTime();
-                    final Pair<Decision, Double> p = d.computeBestScenarioResult(scenario);
-                    final long endTime = System.nanoTime();
-                    status.setText(scenario + " best strategy: " + p.get(Decision.class) + " (" + p.get(Double.class) + ")");
-                    System.out.println("Computation time: " + (endTime - startTime) / 1000000000.0 + "s");
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                } finally {
-                    statusUpdater.cancel(true);
+            // get the info required to build a scenario
+            final String selectedPlayerHand = (String) playerBox.getSelectedItem();
+            final int playerValue = Integer.valueOf(selectedPlayerHand.split(" ")[1]);
+            final boolean isSoft = selectedPlayerHand.split(" ")[0].equals("Soft");
+            final boolean isPair = isPairBox.isSelected();
+            final String selectedDealerCard = (String) dealerBox.getSelectedItem();
+            final Card dealerCard = selectedDealerCard.equals("Ace")
+                    ? Card.ACE
+                    : Card.getCardWithValue(Integer.valueOf(selectedDealerCard));
+
+            // build it
+            final Scenario scenario = new Scenario();
+            scenario.playerValue = playerValue;
+            scenario.dealerCard = dealerCard;
+            scenario.isPlayerSoft = isSoft;
+            scenario.isPair = isPair;
+
+            // solve, showing the number of hands per second about every STATUS_UPDATE_INTERVAL ms
+            final long[] lastUpdate = {System.nanoTime(), d.getMetrics().getHandCount()}; // time, hand count
+            final Consumer<Long> progressListener = (handCount) -> {
+                synchronized (lastUpdate) {
+                    final long now = System.nanoTime();
+                    final long elapsedNanos = now - lastUpdate[0];
+                    if (elapsedNanos < STATUS_UPDATE_INTERVAL * 1000000L) {
+                        return;
+                    }
+
+                    final long handsPerSecond = (handCount - lastUpdate[1]) * 1000000000L / elapsedNanos;
+                    lastUpdate[0] = now;
+                    lastUpdate[1] = handCount;
+                    SwingUtilities.invokeLater(() -> status.setText("solving " + scenario + " ("
+                            + handsPerSecond + " hands per second)"));
+                }
+            };
+            d.getMetrics().addProgressListener(progressListener);
+
+            pendingResult[0].cancel(false);
+            final long startTime = System.nanoTime();
+            final CompletableFuture<Pair<Decision, Double>> result = d.computeBestScenarioResultAsync(scenario);
+            pendingResult[0] = result;
+            result.whenComplete((p, ex) -> {
+                d.getMetrics().removeProgressListener(progressListener);
+                if (ex != null) {
+                    if (!(ex instanceof CancellationException)) {
+                        ex.printStackTrace();
+                    }
+                    return;
                 }
-            }).start();
+
+                final Estimate estimate = d.computeEstimates(scenario).get(p.get(Decision.class));
+                final long endTime = System.nanoTime();
+                SwingUtilities.invokeLater(() -> status.setText(scenario + " best strategy: "
+                        + p.get(Decision.class) + " (" + estimate + ")"));
+                System.out.println("Computation time: " + (endTime - startTime) / 1000000000.0 + "s");
+            });
         });
     }
 
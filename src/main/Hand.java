@@ -0,0 +1,128 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A hand of cards, tracked only by its hard value (every ace counted as 1), its number of aces, and the number of cards
+ * of each value packed into a <tt>CompositionKey</tt>, so adding a card and reading the hand's value or softness take
+ * constant time and allocate nothing. A hand can be reset and reused.
+ *
+ * The cards themselves are only kept when the hand is created in debug mode.
+ */
+public class Hand {
+    private int hardValue = 0;
+    private int aceCount = 0;
+    private long compositionKey = 0; // a CompositionKey with no up-card
+    private final List<Card> cards; // null unless the hand records its cards
+
+    public Hand() {
+        this(false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param recordCards whether to keep a list of the cards in the hand (for debugging)
+     */
+    public Hand(boolean recordCards) {
+        this.cards = (recordCards ? new ArrayList<>() : null);
+    }
+
+    public Card addCard(Card card) {
+        if (card == Card.ACE) {
+            aceCount += 1;
+            hardValue += 1;
+        } else {
+            hardValue += card.getValue();
+        }
+        compositionKey = CompositionKey.addCard(compositionKey, card.getValue());
+
+        if (cards != null) {
+            cards.add(card);
+        }
+
+        return card;
+    }
+
+    public void addAllCards(Collection<? extends Card> cardsToAdd) {
+        for (Card cardToAdd : cardsToAdd) {
+            addCard(cardToAdd);
+        }
+    }
+
+    /**
+     * @return the cards in the hand
+     * @throws IllegalStateException if the hand does not record its cards
+     */
+    public List<Card> getCards() {
+        if (cards == null) {
+            throw new IllegalStateException("Cards are only recorded by a hand created in debug mode");
+        }
+
+        return Collections.unmodifiableList(cards);
+    }
+
+    public boolean handIsSoft() {
+        // Explanation: the hand is soft if one ace can count as an 11 (e.g., an ace can contribute 10 more points)
+        // without the hand going over 21. Only one ace can ever do so, since two would already make 22.
+        return aceCount >= 1 && hardValue + 10 <= 21;
+    }
+
+    public int getHandValue() {
+        return handIsSoft() ? hardValue + 10 : hardValue;
+    }
+
+    /**
+     * @return the value of the hand when every ace counts as 1
+     */
+    public int getHardValue() {
+        return hardValue;
+    }
+
+    public int getAceCount() {
+        return aceCount;
+    }
+
+    /**
+     * @return the number of cards of each value in the hand, packed into a <tt>CompositionKey</tt> with no up-card
+     */
+    long getCompositionKey() {
+        return compositionKey;
+    }
+
+    public void resetHand() {
+        hardValue = 0;
+        aceCount = 0;
+        compositionKey = 0;
+
+        if (cards != null) {
+            cards.clear();
+        }
+    }
+
+    /**
+     * Makes this hand a copy of another one. The cards are only copied if both hands record them.
+     * @param other the hand to copy
+     */
+    public void copyFrom(Hand other) {
+        hardValue = other.hardValue;
+        aceCount = other.aceCount;
+        compositionKey = other.compositionKey;
+
+        if (cards != null) {
+            cards.clear();
+            if (other.cards != null) {
+                cards.addAll(other.cards);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final String handType = (handIsSoft() ? "Soft" : "Hard");
+        return handType + " " + getHandValue();
+    }
+}
@@ -0,0 +1,402 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Deals random hands that match a scenario without ever starting over.
+ *
+ * A hand is the sequence of cards a player draws from the shoe, one at a time, until his hand has the scenario's value
+ * and softness (after at least two cards). Each such sequence is as likely as drawing it from a shoe that holds
+ * everything but the dealer's up-card. For every dealer card and target hand, the generator enumerates the sets of
+ * cards that can still reach the target along with the total probability of reaching it from each of them. Dealing a
+ * hand then picks every card in proportion to how likely it is to be drawn and to lead to the target, so no card
+ * sequence is ever thrown away.
+ *
+ * Since the cards removed to the cut card are random, the hand is dealt from a full shoe and the cut card is placed
+ * afterward, which leaves the shoe in the same state as dealing after the cut.
+ */
+public class HandGenerator {
+    private static final Map<Integer, HandGenerator> generators = new ConcurrentHashMap<>();
+    private static final HandGenerator infiniteDeckGenerator = new HandGenerator(0, true);
+
+    // sets of drawn cards are packed into a CompositionKey without an up-card
+    private static final int VALUE_COUNT = Card.ACE.getValue() - Card.TWO.getValue() + 1;
+
+    // the dealer card value of the tables that deal with every up-card left in the shoe
+    private static final int NO_UP_CARD = 0;
+
+    // the number of target hand values (0-21) that the tables are indexed by
+    private static final int PLAYER_VALUE_COUNT = 22;
+
+    private final int deckCount;
+    private final boolean infiniteDeck;
+
+    // the tables for every dealer card and target hand, indexed by getTableIndex
+    private final AtomicReferenceArray<TargetTable> tables =
+            new AtomicReferenceArray<>((Card.ACE.getValue() + 1) * PLAYER_VALUE_COUNT * 2);
+
+    private HandGenerator(int deckCount, boolean infiniteDeck) {
+        this.deckCount = deckCount;
+        this.infiniteDeck = infiniteDeck;
+    }
+
+    /**
+     * Gets the generator for shoes under the given rules.
+     * @param rule the rules of the game
+     * @return the cached generator, which deals from an infinite deck if the rules call for one
+     */
+    public static HandGenerator get(Rule rule) {
+        return rule.isInfiniteDeck() ? infiniteDeckGenerator : get(rule.getDeckCount());
+    }
+
+    /**
+     * Gets the generator for shoes with the given number of decks.
+     * @param deckCount the number of decks in the shoe
+     * @return the cached generator
+     */
+    public static HandGenerator get(int deckCount) {
+        HandGenerator generator = generators.get(deckCount);
+        if (generator == null) {
+            generator = new HandGenerator(deckCount, false);
+            final HandGenerator existingGenerator = generators.putIfAbsent(deckCount, generator);
+            if (existingGenerator != null) {
+                generator = existingGenerator;
+            }
+        }
+
+        return generator;
+    }
+
+    /**
+     * Refills <tt>shoe</tt> and deals a random hand that corresponds with <tt>scenario</tt> into <tt>hand</tt>. The
+     * dealer's up-card and the player's cards are removed from the shoe before the cut card is placed. A pair scenario
+     * is always dealt the pair itself. Every random choice comes from the shoe's random number generator.
+     * @param scenario the scenario to generate a random hand for
+     * @param shoe the shoe to deal from, which must have been made with this generator's deck count (or be an
+     *             <tt>InfiniteShoe</tt> for the infinite deck generator)
+     * @param hand the hand to replace
+     * @throws IllegalArgumentException if no hand corresponds to the scenario
+     */
+    public void deal(Scenario scenario, Shoe shoe, Hand hand) {
+        shoe.fillShoe();
+        shoe.removeCard(scenario.dealerCard);
+        dealPlayerCards(scenario, scenario.dealerCard.getValue(), shoe, hand);
+    }
+
+    /**
+     * Refills <tt>shoe</tt> and deals a random hand that corresponds with <tt>scenario</tt> into <tt>hand</tt> like
+     * <tt>deal</tt> does, except that no up-card is taken out of the shoe (<tt>scenario.dealerCard</tt> is ignored).
+     * The hand is then as likely as it would be against a random up-card, so it can be played against each up-card
+     * in turn, weighted by the probability of that up-card given the cards that are gone from the shoe.
+     * @param scenario the scenario to generate a random hand for
+     * @param shoe the shoe to deal from, which must have been made with this generator's deck count (or be an
+     *             <tt>InfiniteShoe</tt> for the infinite deck generator)
+     * @param hand the hand to replace
+     * @throws IllegalArgumentException if no hand corresponds to the scenario
+     */
+    void dealWithoutUpCard(Scenario scenario, Shoe shoe, Hand hand) {
+        shoe.fillShoe();
+        dealPlayerCards(scenario, NO_UP_CARD, shoe, hand);
+    }
+
+    private void dealPlayerCards(Scenario scenario, int dealerCardValue, Shoe shoe, Hand hand) {
+        hand.resetHand();
+
+        // the cards are exchangeable, so they can be taken out of the shoe in any order
+        final long drawnCards = pickCardValues(scenario, dealerCardValue, shoe.getRandom());
+        for (int cardValue = Card.TWO.getValue(); cardValue <= Card.ACE.getValue(); cardValue++) {
+            for (int i = CompositionKey.getCount(drawnCards, cardValue); i > 0; i--) {
+                hand.addCard(shoe.removeCardWithValue(cardValue));
+            }
+        }
+
+        shoe.burnCards();
+    }
+
+    /**
+     * Picks the values of the cards in a random hand that corresponds with <tt>scenario</tt>, without dealing them
+     * from a shoe.
+     * @param scenario the scenario to generate a random hand for
+     * @param random the source of randomness
+     * @return the set of card values, packed into a <tt>CompositionKey</tt> without an up-card
+     * @throws IllegalArgumentException if no hand corresponds to the scenario
+     */
+    long pickCardValues(Scenario scenario, SplittableRandom random) {
+        return pickCardValues(scenario, scenario.dealerCard.getValue(), random);
+    }
+
+    /**
+     * Gets the probability of each set of cards that <tt>deal</tt> can deal for a scenario.
+     * @param scenario the scenario
+     * @return the probabilities, keyed by the set of card values, packed like <tt>pickCardValues</tt> packs them
+     * @throws IllegalArgumentException if no hand corresponds to the scenario
+     */
+    Map<Long, Double> getHandProbabilities(Scenario scenario) {
+        if (scenario.isPair) {
+            return Collections.singletonMap(getPair(scenario), 1.0);
+        }
+
+        return getTable(scenario.dealerCard.getValue(), scenario).getHandProbabilities();
+    }
+
+    private long pickCardValues(Scenario scenario, int dealerCardValue, SplittableRandom random) {
+        if (scenario.isPair) {
+            return getPair(scenario);
+        }
+
+        final TargetTable table = getTable(dealerCardValue, scenario);
+
+        long drawnCards = 0;
+        int hardValue = 0;
+        boolean hasAce = false;
+        int cardCount = 0;
+        while (true) {
+            final boolean isSoft = hasAce && hardValue + 10 <= 21;
+            if (cardCount >= 2 && (isSoft ? hardValue + 10 : hardValue) == scenario.playerValue
+                    && isSoft == scenario.isPlayerSoft) {
+                return drawnCards;
+            }
+
+            final int cardValue = table.pickNextCardValue(drawnCards, random);
+            drawnCards = CompositionKey.addCard(drawnCards, cardValue);
+            hardValue += (cardValue == Card.ACE.getValue() ? 1 : cardValue);
+            hasAce |= (cardValue == Card.ACE.getValue());
+            cardCount += 1;
+        }
+    }
+
+    private static long getPair(Scenario scenario) {
+        final int playerCardValue = (scenario.playerValue == 12 && scenario.isPlayerSoft)
+                ? Card.ACE.getValue() // a soft 12 is a pair of aces
+                : scenario.playerValue / 2;
+        return CompositionKey.addCard(CompositionKey.addCard(0, playerCardValue), playerCardValue);
+    }
+
+    private TargetTable getTable(int dealerCardValue, Scenario scenario) {
+        final int index = getTableIndex(dealerCardValue, scenario.playerValue, scenario.isPlayerSoft);
+
+        // computing a table can take a while, so allow a rare duplicate instead of blocking other threads
+        TargetTable table = tables.get(index);
+        if (table == null) {
+            table = new TargetTable(dealerCardValue, scenario.playerValue, scenario.isPlayerSoft);
+            if (!tables.compareAndSet(index, null, table)) {
+                table = tables.get(index);
+            }
+        }
+
+        return table;
+    }
+
+    private static int getTableIndex(int dealerCardValue, int playerValue, boolean isPlayerSoft) {
+        return (dealerCardValue * PLAYER_VALUE_COUNT + playerValue) * 2 + (isPlayerSoft ? 1 : 0);
+    }
+
+    /**
+     * A map from sets of drawn cards to their next-card weights that stores its keys in a primitive array, so that
+     * looking up a set while dealing neither boxes nor allocates. It uses open addressing with linear probing and is
+     * only written while its <tt>TargetTable</tt> is being filled.
+     */
+    private static class DrawnCardsMap {
+        private static final long EMPTY = -1; // keys are never negative, since CompositionKey leaves the top bit clear
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private double[][] values = new double[INITIAL_CAPACITY][];
+        private int size = 0;
+
+        DrawnCardsMap() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        double[] get(long key) {
+            final int mask = keys.length - 1;
+            for (int i = getSlot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+
+            return null;
+        }
+
+        void put(long key, double[] value) {
+            if (2 * (size + 1) > keys.length) { // keep the map at most half full
+                resize();
+            }
+
+            final int mask = keys.length - 1;
+            int i = getSlot(key, mask);
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                size += 1;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private void resize() {
+            final long[] oldKeys = keys;
+            final double[][] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new double[oldKeys.length * 2][];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        // Fibonacci hashing spreads the packed counts, whose low bits only hold the number of twos
+        private static int getSlot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+
+    /**
+     * For one dealer card and target hand, holds the cumulative weights of the next card for every set of drawn cards
+     * that can still reach the target. The table is filled when it is created and only read afterward.
+     */
+    private class TargetTable {
+        private final int dealerCardValue;
+        private final int playerValue;
+        private final boolean isPlayerSoft;
+        // the shoe without the dealer's up-card (if the table has one), indexed by card value, or null for an infinite
+        // deck
+        private final int[] valueCounts;
+        private final int cardsInShoe;
+
+        // nextCardWeights.get(drawnCards)[i] is the probability of drawing a card with value at most i + 2 next and
+        // then reaching the target, so the last entry is the probability of reaching the target at all. Sets of
+        // cards that already make the target have no entry.
+        private final DrawnCardsMap nextCardWeights = new DrawnCardsMap();
+
+        TargetTable(int dealerCardValue, int playerValue, boolean isPlayerSoft) {
+            this.dealerCardValue = dealerCardValue;
+            this.playerValue = playerValue;
+            this.isPlayerSoft = isPlayerSoft;
+
+            int cardCount = 0;
+            if (infiniteDeck) {
+                this.valueCounts = null;
+            } else {
+                this.valueCounts = DealerOutcomeTable.getShoeValueCounts(deckCount);
+                if (dealerCardValue != NO_UP_CARD) {
+                    this.valueCounts[dealerCardValue] -= 1;
+                }
+                for (int count : valueCounts) {
+                    cardCount += count;
+                }
+            }
+            this.cardsInShoe = cardCount;
+
+            if (computeWeight(0, 0, false, 0) == 0) {
+                throw new IllegalArgumentException("No hand corresponds to a " + (isPlayerSoft ? "soft " : "hard ")
+                        + playerValue);
+            }
+        }
+
+        /**
+         * Computes the probability of reaching the target after drawing a set of cards.
+         * @param drawnCards the packed set of drawn cards
+         * @param hardValue the value of the drawn cards when every ace counts as 1
+         * @param hasAce whether an ace has been drawn
+         * @param cardCount the number of drawn cards
+         * @return the probability of reaching the target
+         */
+        private double computeWeight(long drawnCards, int hardValue, boolean hasAce, int cardCount) {
+            final boolean isSoft = hasAce && hardValue + 10 <= 21;
+            final int handValue = (isSoft ? hardValue + 10 : hardValue);
+            if (cardCount >= 2 && handValue == playerValue && isSoft == isPlayerSoft) {
+                return 1;
+            }
+
+            final double[] memo = nextCardWeights.get(drawnCards);
+            if (memo != null) {
+                return memo[VALUE_COUNT - 1];
+            }
+
+            final double[] weights = new double[VALUE_COUNT];
+            double weight = 0;
+            for (int cardValue = Card.TWO.getValue(); cardValue <= Card.ACE.getValue(); cardValue++) {
+                final int newHardValue = hardValue + (cardValue == Card.ACE.getValue() ? 1 : cardValue);
+                final double drawProbability = getDrawProbability(cardValue, drawnCards, cardCount);
+
+                // a hand's value never drops below its hard value, so a hard value above the target is a dead end
+                if (newHardValue <= playerValue && drawProbability > 0) {
+                    weight += drawProbability * computeWeight(CompositionKey.addCard(drawnCards, cardValue),
+                            newHardValue, hasAce || cardValue == Card.ACE.getValue(), cardCount + 1);
+                }
+
+                weights[cardValue - Card.TWO.getValue()] = weight;
+            }
+
+            nextCardWeights.put(drawnCards, weights); // dead ends are kept too so that they are only explored once
+            return weight;
+        }
+
+        private double getDrawProbability(int cardValue, long drawnCards, int cardCount) {
+            if (valueCounts == null) {
+                return DealerOutcomeTable.getInfiniteDeckProbability(cardValue);
+            }
+
+            final int cardsLeft = valueCounts[cardValue] - CompositionKey.getCount(drawnCards, cardValue);
+            return (double) cardsLeft / (cardsInShoe - cardCount);
+        }
+
+        /**
+         * @return the probability of dealing each set of cards that makes the target, keyed by the packed set
+         */
+        Map<Long, Double> getHandProbabilities() {
+            // every draw adds one card, so the sets can be visited by size once every way into them has been summed
+            Map<Long, Double> drawnCardProbabilities = Collections.singletonMap(0L, 1.0);
+            final Map<Long, Double> handProbabilities = new HashMap<>();
+            while (!drawnCardProbabilities.isEmpty()) {
+                final Map<Long, Double> nextDrawnCardProbabilities = new HashMap<>();
+                for (Map.Entry<Long, Double> entry : drawnCardProbabilities.entrySet()) {
+                    final double[] weights = nextCardWeights.get(entry.getKey());
+                    if (weights == null) { // the cards make the target
+                        handProbabilities.merge(entry.getKey(), entry.getValue(), Double::sum);
+                        continue;
+                    }
+
+                    double previousWeight = 0;
+                    for (int i = 0; i < VALUE_COUNT; i++) {
+                        final double cardWeight = weights[i] - previousWeight;
+                        previousWeight = weights[i];
+                        if (cardWeight > 0) {
+                            final long nextDrawnCards = CompositionKey.addCard(entry.getKey(), i + Card.TWO.getValue());
+                            nextDrawnCardProbabilities.merge(nextDrawnCards,
+                                    entry.getValue() * cardWeight / weights[VALUE_COUNT - 1], Double::sum);
+                        }
+                    }
+                }
+                drawnCardProbabilities = nextDrawnCardProbabilities;
+            }
+
+            return handProbabilities;
+        }
+
+        int pickNextCardValue(long drawnCards, SplittableRandom random) {
+            final double[] weights = nextCardWeights.get(drawnCards);
+            final double randomWeight = random.nextDouble() * weights[VALUE_COUNT - 1];
+
+            int i = 0;
+            while (i < VALUE_COUNT - 1 && weights[i] <= randomWeight) {
+                i++;
+            }
+
+            return i + Card.TWO.getValue();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package main;
+
+import java.util.SplittableRandom;
+
+/**
+ * Samples from the hypergeometric distribution: the number of marked cards among <tt>sample</tt> cards drawn without
+ * replacement from <tt>good</tt> marked cards and <tt>bad</tt> unmarked ones. Small samples are drawn one card at a
+ * time. Larger ones use the ratio-of-uniforms rejection method of Stadlober (HRUA), whose expected running time does
+ * not depend on the number of cards.
+ */
+final class Hypergeometric {
+    // samples up to this size are drawn one card at a time
+    private static final int MAX_SEQUENTIAL_SAMPLE = 10;
+
+    // constants of the HRUA hat function: 2 * sqrt(2 / e) and 3 - 2 * sqrt(3 / e)
+    private static final double D1 = 1.7155277699214135;
+    private static final double D2 = 0.8989161620588988;
+
+    // coefficients of the Stirling series for ln(gamma(x))
+    private static final double[] STIRLING_COEFFICIENTS = {
+            8.333333333333333e-02, -2.777777777777778e-03, 7.936507936507937e-04, -5.952380952380952e-04,
+            8.417508417508418e-04, -1.917526917526918e-03, 6.410256410256410e-03, -2.955065359477124e-02,
+            1.796443723688307e-01, -1.39243221690590e+00
+    };
+
+    // ln(k!) for every k up to the number of cards in a 1000-deck shoe, which covers every shoe that is used in practice
+    private static final int LOG_FACTORIAL_TABLE_SIZE = 1 << 16;
+    private static final double[] LOG_FACTORIALS = new double[LOG_FACTORIAL_TABLE_SIZE];
+
+    static {
+        for (int k = 2; k < LOG_FACTORIAL_TABLE_SIZE; k++) {
+            LOG_FACTORIALS[k] = LOG_FACTORIALS[k - 1] + Math.log(k);
+        }
+    }
+
+    private Hypergeometric() {
+    }
+
+    /**
+     * Samples the number of marked cards drawn.
+     * @param good the number of marked cards
+     * @param bad the number of unmarked cards
+     * @param sample the number of cards drawn, at most <tt>good + bad</tt>
+     * @param random the source of randomness
+     * @return a number from <tt>max(0, sample - bad)</tt> to <tt>min(sample, good)</tt>
+     */
+    static int sample(int good, int bad, int sample, SplittableRandom random) {
+        if (sample <= 0 || good == 0) {
+            return 0;
+        } else if (bad == 0) {
+            return sample;
+        } else if (sample <= MAX_SEQUENTIAL_SAMPLE) {
+            return sampleSequentially(good, bad, sample, random);
+        }
+
+        return sampleHrua(good, bad, sample, random);
+    }
+
+    private static int sampleSequentially(int good, int bad, int sample, SplittableRandom random) {
+        int goodLeft = good;
+        int cardsLeft = good + bad;
+        for (int i = 0; i < sample; i++) {
+            if (random.nextInt(cardsLeft) < goodLeft) {
+                goodLeft -= 1;
+            }
+            cardsLeft -= 1;
+        }
+
+        return good - goodLeft;
+    }
+
+    /**
+     * Samples by ratio-of-uniforms rejection from a table-mountain hat around the mode. The smaller of the two groups
+     * and the smaller of the sample and its complement are sampled, and the result is mapped back at the end.
+     */
+    private static int sampleHrua(int good, int bad, int sample, SplittableRandom random) {
+        final int minGoodBad = Math.min(good, bad);
+        final int maxGoodBad = Math.max(good, bad);
+        final int populationSize = good + bad;
+        final int m = Math.min(sample, populationSize - sample);
+
+        final double d4 = (double) minGoodBad / populationSize;
+        final double d5 = 1.0 - d4;
+        final double d6 = m * d4 + 0.5;
+        final double d7 = Math.sqrt((double) (populationSize - m) * sample * d4 * d5 / (populationSize - 1) + 0.5);
+        final double d8 = D1 * d7 + D2;
+        final double d9 = Math.floor((double) (m + 1) * (minGoodBad + 1) / (populationSize + 2));
+        final double d10 = logFactorial(d9) + logFactorial(minGoodBad - d9) + logFactorial(m - d9)
+                + logFactorial(maxGoodBad - m + d9);
+        final double d11 = Math.min(Math.min(m, minGoodBad) + 1.0, Math.floor(d6 + 16 * d7));
+
+        double z;
+        while (true) {
+            final double x = random.nextDouble();
+            final double y = random.nextDouble();
+            final double w = d6 + d8 * (y - 0.5) / x;
+            if (w < 0.0 || w >= d11) {
+                continue;
+            }
+
+            z = Math.floor(w);
+            final double t = d10 - (logFactorial(z) + logFactorial(minGoodBad - z) + logFactorial(m - z)
+                    + logFactorial(maxGoodBad - m + z));
+
+            // a quick acceptance and rejection test before the exact one
+            if (x * (4.0 - x) - 3.0 <= t) {
+                break;
+            }
+            if (x * (x - t) >= 1) {
+                continue;
+            }
+            if (2.0 * Math.log(x) <= t) {
+                break;
+            }
+        }
+
+        int result = (int) z;
+        if (good > bad) {
+            result = m - result;
+        }
+        if (m < sample) {
+            result = good - result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes ln(k!) for a whole number k, from the table when it is small enough.
+     */
+    static double logFactorial(double k) {
+        return (k < LOG_FACTORIAL_TABLE_SIZE) ? LOG_FACTORIALS[(int) k] : logGamma(k + 1);
+    }
+
+    /**
+     * Computes ln(gamma(x)) for x > 0 by the Stirling series, shifting small arguments up first.
+     */
+    static double logGamma(double x) {
+        if (x == 1.0 || x == 2.0) {
+            return 0.0;
+        }
+
+        double x0 = x;
+        int shift = 0;
+        if (x <= 7) {
+            shift = (int) (7 - x);
+            x0 = x + shift;
+        }
+
+        final double x2 = 1.0 / (x0 * x0);
+        double series = STIRLING_COEFFICIENTS[STIRLING_COEFFICIENTS.length - 1];
+        for (int k = STIRLING_COEFFICIENTS.length - 2; k >= 0; k--) {
+            series = series * x2 + STIRLING_COEFFICIENTS[k];
+        }
+
+        double result = series / x0 + 0.5 * Math.log(2 * Math.PI) + (x0 - 0.5) * Math.log(x0) - x0;
+        for (int k = 1; k <= shift; k++) {
+            x0 -= 1.0;
+            result -= Math.log(x0);
+        }
+
+        return result;
+    }
+}
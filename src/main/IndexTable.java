@@ -0,0 +1,56 @@
+package main;
+
+import java.util.*;
+
+/**
+ * A strategy chart for each true count, along with the index numbers at which the best decisions change.
+ */
+public class IndexTable {
+    private final SortedMap<Integer, StrategyTable> tables = new TreeMap<>();
+
+    IndexTable() {}
+
+    void put(int trueCount, StrategyTable table) {
+        tables.put(trueCount, table);
+    }
+
+    /**
+     * @return the true counts in the table, from lowest to highest
+     */
+    public List<Integer> getTrueCounts() {
+        return new ArrayList<>(tables.keySet());
+    }
+
+    /**
+     * @param trueCount one of the true counts in the table
+     * @return the strategy chart at that true count
+     */
+    public StrategyTable getStrategyTable(int trueCount) {
+        return tables.get(trueCount);
+    }
+
+    public Decision getBestDecision(Scenario scenario, int trueCount) {
+        return tables.get(trueCount).getBestDecision(scenario);
+    }
+
+    /**
+     * Gets the index numbers of a scenario. The result maps the lowest true count in the table to the best decision
+     * there, and every true count at which the best decision changes (going up) to the new best decision. For example,
+     * <tt>{-10=HIT, 0=STAND}</tt> means to stand at a true count of 0 or more, and to hit otherwise.
+     * @param scenario the scenario
+     * @return the best decisions, keyed by the true counts at which they start
+     */
+    public SortedMap<Integer, Decision> getIndices(Scenario scenario) {
+        final SortedMap<Integer, Decision> indices = new TreeMap<>();
+        Decision lastDecision = null;
+        for (Map.Entry<Integer, StrategyTable> entry : tables.entrySet()) {
+            final Decision decision = entry.getValue().getBestDecision(scenario);
+            if (decision != lastDecision) {
+                indices.put(entry.getKey(), decision);
+                lastDecision = decision;
+            }
+        }
+
+        return indices;
+    }
+}
@@ -0,0 +1,83 @@
+package main;
+
+import java.util.SplittableRandom;
+
+/**
+ * A shoe with infinitely many decks. Every card is drawn with the same probability no matter which cards have been
+ * drawn before, so the shoe keeps no composition: filling it, burning cards, and putting cards back do nothing, and a
+ * draw is a single random number.
+ */
+class InfiniteShoe extends Shoe {
+    private static final Card[] CARDS = Card.values();
+    private static final Card[] TEN_VALUED_CARDS = {Card.TEN, Card.JACK, Card.QUEEN, Card.KING};
+
+    InfiniteShoe(SplittableRandom random) {
+        super(random);
+    }
+
+    @Override
+    void fillShoe() {
+    }
+
+    @Override
+    void burnCards() {
+    }
+
+    @Override
+    void copyFrom(Shoe other) {
+    }
+
+    @Override
+    double getDrawProbability(int value) {
+        return DealerOutcomeTable.getInfiniteDeckProbability(value);
+    }
+
+    @Override
+    public Shoe rebuildShoe() {
+        return this;
+    }
+
+    @Override
+    public Card removeCard(Card card) {
+        return card;
+    }
+
+    @Override
+    public Card removeCardWithValue(int value) {
+        if (value == Card.TEN.getValue()) {
+            // 10/J/Q/K are equally likely
+            return TEN_VALUED_CARDS[getRandom().nextInt(TEN_VALUED_CARDS.length)];
+        }
+
+        return Card.getCardWithValue(value);
+    }
+
+    @Override
+    public Card removeTopCard() {
+        return CARDS[getRandom().nextInt(CARDS.length)];
+    }
+
+    @Override
+    public Card removeCardWithMaxValue(int maxValue) {
+        int cardCountWithinRange = 0;
+        for (Card card : CARDS) {
+            if (isWithinRange(card, maxValue)) {
+                cardCountWithinRange += 1;
+            }
+        }
+
+        int cardIndex = getRandom().nextInt(cardCountWithinRange);
+        for (Card card : CARDS) {
+            if (isWithinRange(card, maxValue) && cardIndex-- == 0) {
+                return card;
+            }
+        }
+
+        throw new IllegalStateException("Shoe does not contain card within range");
+    }
+
+    @Override
+    public Card putCardBack(Card card) {
+        return card;
+    }
+}
@@ -9,13 +9,31 @@ public class Rule {
     private boolean dealerHitsSoft17;
     private boolean canSurrender;
     private int maxSplitHands;
+    private boolean infiniteDeck;
 
     public Rule(int deckCount, double penetrationValue, boolean dealerHitsSoft17, boolean canSurrender, int maxSplitHands) {
+        this(deckCount, penetrationValue, dealerHitsSoft17, canSurrender, maxSplitHands, false);
+    }
+
+    /**
+     * Constructor.
+     * @param deckCount the number of decks in the shoe (ignored if <tt>infiniteDeck</tt> is set)
+     * @param penetrationValue the proportion of the shoe that play is made through (ignored if <tt>infiniteDeck</tt>
+     *                         is set)
+     * @param dealerHitsSoft17 whether the dealer hits a soft 17
+     * @param canSurrender whether the player may surrender
+     * @param maxSplitHands the most hands that the player may split to
+     * @param infiniteDeck whether cards are drawn from an infinite deck, in which the probability of drawing each card
+     *                     never changes
+     */
+    public Rule(int deckCount, double penetrationValue, boolean dealerHitsSoft17, boolean canSurrender,
+                int maxSplitHands, boolean infiniteDeck) {
         this.deckCount = deckCount;
         this.penetrationValue = penetrationValue;
         this.dealerHitsSoft17 = dealerHitsSoft17;
         this.canSurrender = canSurrender;
         this.maxSplitHands = maxSplitHands;
+        this.infiniteDeck = infiniteDeck;
     }
 
     public int getDeckCount() {
@@ -37,4 +55,8 @@ public class Rule {
     public int getMaxSplitHands() {
         return maxSplitHands;
     }
+
+    public boolean isInfiniteDeck() {
+        return infiniteDeck;
+    }
 }
@@ -9,6 +9,7 @@ public class RuleBuilder {
     private boolean dealerHitsSoft17 = false;
     private boolean canSurrender = false;
     private int maxSplitHands = 4;
+    private boolean infiniteDeck = false;
 
     public RuleBuilder setDeckCount(int deckCount) {
         this.deckCount = deckCount;
@@ -35,7 +36,16 @@ public class RuleBuilder {
         return this;
     }
 
+    /**
+     * @param infiniteDeck whether cards are drawn from an infinite deck, in which case the deck count and penetration
+     *                     are ignored
+     */
+    public RuleBuilder setInfiniteDeck(boolean infiniteDeck) {
+        this.infiniteDeck = infiniteDeck;
+        return this;
+    }
+
     public Rule build() {
-        return new Rule(deckCount, penetrationValue, dealerHitsSoft17, canSurrender, maxSplitHands);
+        return new Rule(deckCount, penetrationValue, dealerHitsSoft17, canSurrender, maxSplitHands, infiniteDeck);
     }
 }
@@ -40,7 +40,7 @@ public class Scenario {
             builder.setSoftFlag(false);
             builder.setPairFlag(true);
             for (int cardValue = 2; cardValue <= 10; cardValue++) {
-                builder.setPlayerValue(cardValue);
+                builder.setPlayerValue(2 * cardValue);
                 result.add(builder.build());
             }
 
@@ -118,7 +118,9 @@ public class Scenario {
 
         String playerDescription;
         if (isPair) {
-            final Card playerCard = Card.getCardWithValue(playerValue / 2);
+            final Card playerCard = (playerValue == 12 && isPlayerSoft)
+                    ? Card.ACE // a soft 12 is a pair of aces
+                    : Card.getCardWithValue(playerValue / 2);
             playerDescription = "Pair of " + playerCard + "s";
         } else {
             final String playerHandType = (isPlayerSoft ? "Soft" : "Hard");
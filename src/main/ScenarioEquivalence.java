@@ -0,0 +1,47 @@
+package main;
+
+/**
+ * Maps a scenario and a first decision to the canonical scenario that provably has the same expected value under the
+ * rules, so that a <tt>Decider</tt> keeps one memo entry, and simulates once, for all of them.
+ *
+ * Under any rules, 10/J/Q/K up-cards are equivalent: the dealer plays the same with each of them, and the player's
+ * cards are drawn by value, so only the value of the card taken out of the shoe matters.
+ *
+ * With an infinite deck, the cards already dealt do not change what is drawn next, so a hand is only its total and
+ * softness. Hitting or doubling down on a pair is then the same as on any other hand with its total. A soft 20 or 21
+ * also becomes the same hand as a hard 10 or 11 after any one card (every card but an ace takes both to the same hard
+ * total, and an ace takes them to a soft 21 or a hard 12), so hitting and doubling down on them are the same too.
+ */
+final class ScenarioEquivalence {
+    // the soft totals whose hits and double downs match the hard total 10 less with an infinite deck
+    private static final int MIN_SOFT_VALUE_MATCHING_HARD = 20;
+
+    private final boolean infiniteDeck;
+
+    ScenarioEquivalence(Rule rule) {
+        this.infiniteDeck = rule.isInfiniteDeck();
+    }
+
+    /**
+     * Gets the canonical scenario of a scenario-decision combination.
+     * @param scenarioIndex the index of the scenario
+     * @param decision the first decision made under the scenario
+     * @return the index of the canonical scenario, which has the same expected value for <tt>decision</tt>
+     */
+    int getCanonicalIndex(int scenarioIndex, Decision decision) {
+        int playerValue = ScenarioIndex.getPlayerValue(scenarioIndex);
+        boolean isPlayerSoft = ScenarioIndex.isPlayerSoft(scenarioIndex);
+        boolean isPair = ScenarioIndex.isPair(scenarioIndex);
+        final Card dealerCard = Card.getCardWithValue(ScenarioIndex.getDealerCard(scenarioIndex).getValue());
+
+        if (infiniteDeck && (decision == Decision.HIT || decision == Decision.DOUBLE)) {
+            isPair = false;
+            if (isPlayerSoft && playerValue >= MIN_SOFT_VALUE_MATCHING_HARD) {
+                playerValue -= 10;
+                isPlayerSoft = false;
+            }
+        }
+
+        return ScenarioIndex.of(playerValue, dealerCard, isPlayerSoft, isPair);
+    }
+}
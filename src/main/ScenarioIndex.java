@@ -0,0 +1,91 @@
+package main;
+
+/**
+ * Packs a scenario (player hand value, dealer card, softness, and pair flag) into a dense integer from 0 to
+ * <tt>SIZE - 1</tt> so that per-scenario data can live in arrays instead of hash maps. <tt>Scenario</tt> stays the
+ * type used by callers; indices are only used internally.
+ */
+public final class ScenarioIndex {
+    private static final Card[] CARDS = Card.values();
+    private static final int MAX_PLAYER_VALUE = 21;
+
+    /**
+     * The number of distinct indices.
+     */
+    public static final int SIZE = (MAX_PLAYER_VALUE + 1) * CARDS.length * 2 * 2;
+
+    /**
+     * Returned by <tt>afterDrawing</tt> when the player's hand busts.
+     */
+    public static final int BUST = -1;
+
+    private ScenarioIndex() {}
+
+    public static int of(int playerValue, Card dealerCard, boolean isPlayerSoft, boolean isPair) {
+        if (playerValue < 0 || playerValue > MAX_PLAYER_VALUE) {
+            throw new IllegalArgumentException("Player value " + playerValue + " is out of range");
+        }
+
+        int index = playerValue;
+        index = index * CARDS.length + dealerCard.ordinal();
+        index = index * 2 + (isPlayerSoft ? 1 : 0);
+        index = index * 2 + (isPair ? 1 : 0);
+
+        return index;
+    }
+
+    public static int of(Scenario scenario) {
+        return of(scenario.playerValue, scenario.dealerCard, scenario.isPlayerSoft, scenario.isPair);
+    }
+
+    public static int getPlayerValue(int index) {
+        return index / (CARDS.length * 2 * 2);
+    }
+
+    public static Card getDealerCard(int index) {
+        return CARDS[(index / (2 * 2)) % CARDS.length];
+    }
+
+    public static boolean isPlayerSoft(int index) {
+        return ((index / 2) % 2) == 1;
+    }
+
+    public static boolean isPair(int index) {
+        return (index % 2) == 1;
+    }
+
+    /**
+     * Gets the scenario that a player faces after drawing a card. The new hand is never treated as a pair.
+     * @param index the index of the scenario before drawing the card
+     * @param card the card drawn
+     * @return the index of the new scenario, or <tt>BUST</tt> if the player's hand busts
+     */
+    public static int afterDrawing(int index, Card card) {
+        // only a soft hand has an ace that still counts as 11; aces in a hard hand already count as 1
+        boolean hasAce = isPlayerSoft(index);
+        int hardValue = hasAce ? getPlayerValue(index) - 10 : getPlayerValue(index);
+
+        if (card == Card.ACE) {
+            hasAce = true;
+            hardValue += 1;
+        } else {
+            hardValue += card.getValue();
+        }
+
+        if (hardValue > MAX_PLAYER_VALUE) {
+            return BUST;
+        }
+
+        final boolean isSoft = hasAce && hardValue + 10 <= MAX_PLAYER_VALUE;
+        return of(isSoft ? hardValue + 10 : hardValue, getDealerCard(index), isSoft, false);
+    }
+
+    public static Scenario toScenario(int index) {
+        return new ScenarioBuilder()
+                .setPlayerValue(getPlayerValue(index))
+                .setDealerCard(getDealerCard(index))
+                .setSoftFlag(isPlayerSoft(index))
+                .setPairFlag(isPair(index))
+                .build();
+    }
+}
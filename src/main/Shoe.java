@@ -1,7 +1,6 @@
 package main;
 
-import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.SplittableRandom;
 
 /**
  * Created by Brian on 1/17/2017.
@@ -10,32 +9,144 @@ public class Shoe {
     public static final int CARDS_PER_DECK = 52;
     public static final int CARDS_PER_RANK = 4;
 
-    private final Map<Card, Integer> shoeComposition = new HashMap<>();
+    // Card.values() clones its backing array on every call, so keep our own copy for the draw loops
+    private static final Card[] CARDS = Card.values();
+
+    // below this many burned cards, drawing them one at a time is faster than sampling the count of each rank
+    private static final int MIN_CARDS_TO_SAMPLE_BURN = 32;
+
+    // shoeComposition[card.ordinal()] is the number of copies of |card| left in the shoe
+    private final int[] shoeComposition = new int[CARDS.length];
     private int cardsInShoe;
     private int deckCount;
     private double penetrationValue;
+    private SplittableRandom random;
 
-    // generates a shoe with the given parameters
-    Shoe(int deckCount, double penetrationValue) {
+    /**
+     * Generates a shoe that draws its cards using the given random number generator, so that the same generator state
+     * always produces the same cards.
+     * @param deckCount the number of decks in the shoe
+     * @param penetrationValue the proportion of the shoe that play is made through
+     * @param random the random number generator, which must not be shared with another thread
+     */
+    Shoe(int deckCount, double penetrationValue, SplittableRandom random) {
         this.deckCount = deckCount;
         this.penetrationValue = penetrationValue;
+        this.random = random;
         buildShoe();
     }
 
+    /**
+     * Constructor for a shoe that does not track its cards, which fills nothing.
+     * @param random the random number generator, which must not be shared with another thread
+     */
+    Shoe(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Generates a shoe under the given rules: an <tt>InfiniteShoe</tt> for an infinite deck, or a full shoe with cards
+     * removed up to the cut card otherwise.
+     * @param rule the rules of the game
+     * @param random the random number generator, which must not be shared with another thread
+     * @return the shoe
+     */
+    static Shoe create(Rule rule, SplittableRandom random) {
+        return rule.isInfiniteDeck()
+                ? new InfiniteShoe(random)
+                : new Shoe(rule.getDeckCount(), rule.getPenetrationValue(), random);
+    }
+
+    /**
+     * @return the random number generator that this shoe draws with
+     */
+    SplittableRandom getRandom() {
+        return random;
+    }
+
     private void buildShoe() {
+        fillShoe();
+        burnCards();
+    }
+
+    /**
+     * Puts every card back in the shoe without removing any to the cut card.
+     */
+    void fillShoe() {
         cardsInShoe = deckCount * CARDS_PER_DECK;
 
-        // initialize the deck composition map
-        for (Card card : Card.values()) {
-            // there are four of each card (2, 3, ..., 10/J/Q/K, A) in a deck
-            shoeComposition.put(card, CARDS_PER_RANK * deckCount);
+        // initialize the deck composition
+        // there are four of each card (2, 3, ..., 10/J/Q/K, A) in a deck
+        for (int i = 0; i < CARDS.length; i++) {
+            shoeComposition[i] = CARDS_PER_RANK * deckCount;
         }
+    }
 
-        // remove cards up to the cut card, which removes [100(1 - |penetrationValue|)]% of the deck
-        final int numCardsToRemove = (int) Math.floor((1 - penetrationValue) * deckCount * CARDS_PER_DECK);
-        for (int i = 0; i < numCardsToRemove; i++) {
-            removeTopCard();
+    /**
+     * Removes random cards up to the cut card, which removes [100(1 - |penetrationValue|)]% of a full shoe. Since the
+     * removed cards are random, cards can be taken out of a full shoe before burning instead of after.
+     *
+     * Unless only a few cards are burned, rather than drawing them one at a time, the number burned of each rank is
+     * sampled from the multivariate hypergeometric distribution, one rank at a time: given the cards burned from the
+     * ranks before it, the number burned from a rank is hypergeometric in the cards left. This takes the same time for
+     * any number of decks.
+     */
+    void burnCards() {
+        int cardsToRemove = Math.min(cardsInShoe,
+                (int) Math.floor((1 - penetrationValue) * deckCount * CARDS_PER_DECK));
+        if (cardsToRemove < MIN_CARDS_TO_SAMPLE_BURN) {
+            for (int i = 0; i < cardsToRemove; i++) {
+                removeTopCard();
+            }
+            return;
+        }
+
+        int cardsInLaterRanks = cardsInShoe;
+        for (int i = 0; i < CARDS.length && cardsToRemove > 0; i++) {
+            cardsInLaterRanks -= shoeComposition[i];
+            final int burnedCount = Hypergeometric.sample(shoeComposition[i], cardsInLaterRanks, cardsToRemove, random);
+
+            shoeComposition[i] -= burnedCount;
+            cardsInShoe -= burnedCount;
+            cardsToRemove -= burnedCount;
+        }
+    }
+
+    /**
+     * Makes this shoe a copy of another one, so that a dealt state can be played out more than once. Only the cards
+     * are copied, not the random number generator (see <tt>reseed</tt>).
+     * @param other the shoe to copy
+     */
+    void copyFrom(Shoe other) {
+        deckCount = other.deckCount;
+        penetrationValue = other.penetrationValue;
+        cardsInShoe = other.cardsInShoe;
+        System.arraycopy(other.shoeComposition, 0, shoeComposition, 0, shoeComposition.length);
+    }
+
+    /**
+     * Makes this shoe draw with a new random number generator. Reseeding with the same seed after each
+     * <tt>copyFrom</tt> replays the same draws from the same cards.
+     * @param seed the seed of the new generator
+     */
+    void reseed(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Gets the probability that the next card drawn from the shoe has a value.
+     * @param value the value of the card (2-11, where 11 is an ace)
+     * @return the number of cards with the value divided by the number of cards in the shoe
+     */
+    double getDrawProbability(int value) {
+        int cardCountWithValue = 0;
+        for (int i = 0; i < CARDS.length; i++) {
+            if (CARDS[i].getValue() == value) {
+                cardCountWithValue += shoeComposition[i];
+            }
         }
+
+        return (double) cardCountWithValue / cardsInShoe;
     }
 
     public Shoe rebuildShoe() {
@@ -44,67 +155,111 @@ public class Shoe {
     }
 
     public Card removeCard(Card card) {
-        final int currentCount = shoeComposition.get(card);
-        if (currentCount == 0) {
+        final int index = card.ordinal();
+        if (shoeComposition[index] == 0) {
             throw new IllegalStateException("Card does not exist in the shoe");
-        } else {
-            shoeComposition.put(card, currentCount - 1);
-            cardsInShoe -= 1;
         }
 
+        shoeComposition[index] -= 1;
+        cardsInShoe -= 1;
+
         return card;
     }
 
-    public Card removeTopCard() {
-        final int cumulativeTarget = ThreadLocalRandom.current().nextInt(1, cardsInShoe + 1);
-        int currentCumulative = 0;
-        for (Card card : Card.values()) {
-            final int cardCount = shoeComposition.get(card);
-            currentCumulative += cardCount;
-
-            if (currentCumulative >= cumulativeTarget) {
-                return removeCard(card);
+    /**
+     * Removes a card with the given value, picking among 10/J/Q/K in proportion to how many of each are left.
+     * @param value the value of the card (2-11, where 11 is an ace)
+     * @return the removed card
+     */
+    public Card removeCardWithValue(int value) {
+        int cardCountWithValue = 0;
+        for (int i = 0; i < CARDS.length; i++) {
+            if (CARDS[i].getValue() == value) {
+                cardCountWithValue += shoeComposition[i];
+            }
+        }
+
+        if (cardCountWithValue == 0) {
+            throw new IllegalStateException("Shoe does not contain a card with value " + value);
+        }
+
+        int cumulativeTarget = random.nextInt(cardCountWithValue);
+        int index = 0;
+        while (CARDS[index].getValue() != value || cumulativeTarget >= shoeComposition[index]) {
+            if (CARDS[index].getValue() == value) {
+                cumulativeTarget -= shoeComposition[index];
             }
+            index++;
         }
 
-        throw new IllegalStateException("Shoe is empty");
+        shoeComposition[index] -= 1;
+        cardsInShoe -= 1;
+
+        return CARDS[index];
+    }
+
+    public Card removeTopCard() {
+        if (cardsInShoe == 0) {
+            throw new IllegalStateException("Shoe is empty");
+        }
+
+        // walk the cumulative counts until we pass a uniformly chosen card position
+        int cumulativeTarget = random.nextInt(cardsInShoe);
+        int index = 0;
+        while (cumulativeTarget >= shoeComposition[index]) {
+            cumulativeTarget -= shoeComposition[index];
+            index++;
+        }
+
+        shoeComposition[index] -= 1;
+        cardsInShoe -= 1;
+
+        return CARDS[index];
     }
 
     public Card removeCardWithMaxValue(int maxValue) {
-        final List<Card> cardsWithinRange = new ArrayList<>();
+        // aces always fall within range since they can count as 1
         int cardCountWithinRange = 0;
-
-        for (Card card : Card.values()) {
-            if (card.getValue() <= maxValue || card.equals(Card.ACE)) {
-                cardsWithinRange.add(card);
-                cardCountWithinRange += shoeComposition.get(card);
+        for (int i = 0; i < CARDS.length; i++) {
+            if (isWithinRange(CARDS[i], maxValue)) {
+                cardCountWithinRange += shoeComposition[i];
             }
         }
 
-        // continue in a similar fashion to removeTopCard()
-        final int cumulativeTarget = ThreadLocalRandom.current().nextInt(1, cardCountWithinRange + 1);
-        int currentCumulative = 0;
-        for (Card card : cardsWithinRange) {
-            final int cardCount = shoeComposition.get(card);
-            currentCumulative += cardCount;
+        if (cardCountWithinRange == 0) {
+            throw new IllegalStateException("Shoe does not contain card within range");
+        }
 
-            if (currentCumulative >= cumulativeTarget) {
-                return removeCard(card);
+        // continue in a similar fashion to removeTopCard(), skipping the cards that are out of range
+        int cumulativeTarget = random.nextInt(cardCountWithinRange);
+        int index = 0;
+        while (!isWithinRange(CARDS[index], maxValue) || cumulativeTarget >= shoeComposition[index]) {
+            if (isWithinRange(CARDS[index], maxValue)) {
+                cumulativeTarget -= shoeComposition[index];
             }
+            index++;
         }
 
-        throw new IllegalStateException("Shoe does not contain card within range");
+        shoeComposition[index] -= 1;
+        cardsInShoe -= 1;
+
+        return CARDS[index];
+    }
+
+    // aces always fall within range since they can count as 1
+    static boolean isWithinRange(Card card, int maxValue) {
+        return card.getValue() <= maxValue || card == Card.ACE;
     }
 
     public Card putCardBack(Card card) {
-        final int currentCount = shoeComposition.get(card);
-        if (currentCount >= Deck.CARDS_PER_RANK * deckCount) {
+        final int index = card.ordinal();
+        if (shoeComposition[index] >= Deck.CARDS_PER_RANK * deckCount) {
             throw new IllegalStateException("Max cards of this type are already in the deck");
-        } else {
-            shoeComposition.put(card, currentCount + 1);
-            cardsInShoe += 1;
         }
 
+        shoeComposition[index] += 1;
+        cardsInShoe += 1;
+
         return card;
     }
 }
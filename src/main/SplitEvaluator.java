@@ -0,0 +1,102 @@
+package main;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Computes the expected value of splitting a pair, summed over every hand that the split makes.
+ *
+ * After a split, each hand holding only the split card draws its second card. A card of the split value is split
+ * again while fewer than <tt>Rule.getMaxSplitHands()</tt> hands are in play, except that aces are never resplit, and
+ * split aces must stand on their second card. Which hands are made only depends on the number of hands still waiting
+ * for a second card and the number of hands in play, so the draws are a small state machine over those two numbers.
+ * The value of each state is memoized, as is the value of a hand by its second card, so every value is computed once.
+ */
+final class SplitEvaluator {
+    private final int splitCardValue;
+    private final int maxSplitHands;
+    private final double[] drawProbabilities;
+    private final IntToDoubleFunction standValue;
+    private final IntToDoubleFunction playValue;
+
+    // the expected value of a hand made by splitting, indexed by its second card's value (NaN until computed)
+    private final double[] handValues = new double[Card.ACE.getValue() + 1];
+
+    // the total expected value of the hands still waiting for a second card, indexed by [waiting hands][hands in play]
+    private final double[][] stateValues;
+
+    /**
+     * Constructor.
+     * @param splitCardValue the value of the card that is split (2-11, where 11 is an ace)
+     * @param maxSplitHands the most hands that the player may split to
+     * @param drawProbabilities the probability of drawing a card of each value, indexed by card value
+     * @param standValue the expected value of standing on the split card and a second card, given the second card's
+     *                   value
+     * @param playValue the expected value of playing the split card and a second card with perfect play (including
+     *                  doubling down), given the second card's value
+     */
+    SplitEvaluator(int splitCardValue, int maxSplitHands, double[] drawProbabilities, IntToDoubleFunction standValue,
+                   IntToDoubleFunction playValue) {
+        this.splitCardValue = splitCardValue;
+        this.maxSplitHands = Math.max(2, maxSplitHands);
+        this.drawProbabilities = drawProbabilities;
+        this.standValue = standValue;
+        this.playValue = playValue;
+
+        Arrays.fill(handValues, Double.NaN);
+        stateValues = new double[this.maxSplitHands + 1][this.maxSplitHands + 1];
+        for (double[] row : stateValues) {
+            Arrays.fill(row, Double.NaN);
+        }
+    }
+
+    /**
+     * @return the expected value of splitting, summed over every hand
+     */
+    double getValue() {
+        // splitting two X's results in two hands with one X in each of them
+        return getStateValue(2, 2);
+    }
+
+    /**
+     * Computes the total expected value of the hands that still need a second card.
+     * @param waitingHands the number of hands holding only the split card
+     * @param handCount the number of hands in play
+     * @return the sum of the expected values of the waiting hands
+     */
+    private double getStateValue(int waitingHands, int handCount) {
+        if (waitingHands == 0) {
+            return 0;
+        } else if (!Double.isNaN(stateValues[waitingHands][handCount])) {
+            return stateValues[waitingHands][handCount];
+        }
+
+        double value = 0;
+        for (int cardValue = Card.TWO.getValue(); cardValue <= Card.ACE.getValue(); cardValue++) {
+            if (drawProbabilities[cardValue] == 0) {
+                continue;
+            }
+
+            if (cardValue == splitCardValue && handCount < maxSplitHands && splitCardValue != Card.ACE.getValue()) {
+                // the card starts a new hand, which needs a second card of its own
+                value += drawProbabilities[cardValue] * getStateValue(waitingHands + 1, handCount + 1);
+            } else {
+                value += drawProbabilities[cardValue]
+                        * (getHandValue(cardValue) + getStateValue(waitingHands - 1, handCount));
+            }
+        }
+
+        stateValues[waitingHands][handCount] = value;
+        return value;
+    }
+
+    private double getHandValue(int cardValue) {
+        if (Double.isNaN(handValues[cardValue])) {
+            handValues[cardValue] = (splitCardValue == Card.ACE.getValue())
+                    ? standValue.applyAsDouble(cardValue) // if we split aces, we cannot take more cards
+                    : playValue.applyAsDouble(cardValue);
+        }
+
+        return handValues[cardValue];
+    }
+}
@@ -0,0 +1,40 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A complete strategy chart: the expected value of every decision and the best decision for each scenario.
+ */
+public class StrategyTable {
+    private final Map<Scenario, Map<Decision, Double>> expectedValues = new LinkedHashMap<>();
+    private final Map<Scenario, Pair<Decision, Double>> bestResults = new LinkedHashMap<>();
+
+    StrategyTable() {}
+
+    void put(Scenario scenario, Map<Decision, Double> scenarioExpectedValues, Pair<Decision, Double> bestResult) {
+        expectedValues.put(scenario, scenarioExpectedValues);
+        bestResults.put(scenario, bestResult);
+    }
+
+    /**
+     * @return the scenarios in the table, in the order they were added
+     */
+    public List<Scenario> getScenarios() {
+        return new ArrayList<>(expectedValues.keySet());
+    }
+
+    public Map<Decision, Double> getExpectedValues(Scenario scenario) {
+        return expectedValues.get(scenario);
+    }
+
+    public Decision getBestDecision(Scenario scenario) {
+        return bestResults.get(scenario).get(Decision.class);
+    }
+
+    public double getBestValue(Scenario scenario) {
+        return bestResults.get(scenario).get(Double.class);
+    }
+}
@@ -0,0 +1,105 @@
+package main;
+
+/**
+ * Running sums over simulated trials, from which the mean and variance of each decision's result and the covariance
+ * between decisions simulated on the same hands follow. Statistics from separate tasks can be merged.
+ */
+class TrialStatistics {
+    private static final int DECISION_COUNT = Decision.values().length;
+
+    private long trialCount = 0;
+    private final double[] sums = new double[DECISION_COUNT]; // indexed by decision ordinal
+    private final double[][] productSums = new double[DECISION_COUNT][DECISION_COUNT];
+
+    /**
+     * Records one trial.
+     * @param decisions the decisions simulated in the trial
+     * @param unitsWon the units won by each decision, indexed by decision ordinal
+     */
+    void addTrial(Decision[] decisions, double[] unitsWon) {
+        trialCount += 1;
+
+        for (Decision decision : decisions) {
+            final int i = decision.ordinal();
+            sums[i] += unitsWon[i];
+
+            for (Decision otherDecision : decisions) {
+                final int j = otherDecision.ordinal();
+                productSums[i][j] += unitsWon[i] * unitsWon[j];
+            }
+        }
+    }
+
+    /**
+     * Records a batch of trials in which only one decision was simulated.
+     * @param decision the decision simulated in the trials
+     * @param sum the total units won
+     * @param squareSum the sum of the squares of the units won in each trial
+     * @param count the number of trials
+     */
+    void addTrials(Decision decision, double sum, double squareSum, int count) {
+        trialCount += count;
+        sums[decision.ordinal()] += sum;
+        productSums[decision.ordinal()][decision.ordinal()] += squareSum;
+    }
+
+    void merge(TrialStatistics other) {
+        trialCount += other.trialCount;
+
+        for (int i = 0; i < DECISION_COUNT; i++) {
+            sums[i] += other.sums[i];
+            for (int j = 0; j < DECISION_COUNT; j++) {
+                productSums[i][j] += other.productSums[i][j];
+            }
+        }
+    }
+
+    long getTrialCount() {
+        return trialCount;
+    }
+
+    double getMean(Decision decision) {
+        return sums[decision.ordinal()] / trialCount;
+    }
+
+    /**
+     * @return the sample covariance between the results of two decisions in a single trial
+     */
+    double getCovariance(Decision decision, Decision otherDecision) {
+        if (trialCount < 2) {
+            return 0;
+        }
+
+        final int i = decision.ordinal();
+        final int j = otherDecision.ordinal();
+        return (productSums[i][j] - sums[i] * sums[j] / trialCount) / (trialCount - 1);
+    }
+
+    double getVariance(Decision decision) {
+        return Math.max(0, getCovariance(decision, decision));
+    }
+
+    /**
+     * @param decision a simulated decision
+     * @param otherDecision another decision simulated on the same hands
+     * @param confidenceBound the number of standard errors on either side of the mean that the interval spans
+     * @return the estimate of how much more <tt>decision</tt> wins than <tt>otherDecision</tt>. The covariance of the
+     * two decisions is taken out of the variance of the difference.
+     */
+    Estimate getDifferenceEstimate(Decision decision, Decision otherDecision, double confidenceBound) {
+        final double differenceVariance = getVariance(decision) + getVariance(otherDecision)
+                - 2 * getCovariance(decision, otherDecision);
+        final double standardError = Math.sqrt(Math.max(0, differenceVariance) / trialCount);
+        return new Estimate(getMean(decision) - getMean(otherDecision), confidenceBound * standardError, trialCount);
+    }
+
+    /**
+     * @param decision a simulated decision
+     * @param confidenceBound the number of standard errors on either side of the mean that the interval spans
+     * @return the estimate of the decision's expected value
+     */
+    Estimate getEstimate(Decision decision, double confidenceBound) {
+        final double standardError = Math.sqrt(getVariance(decision) / trialCount);
+        return new Estimate(getMean(decision), confidenceBound * standardError, trialCount);
+    }
+}
@@ -0,0 +1,85 @@
+package main;
+
+/**
+ * Running sums over trials that play each dealt hand against every dealer up-card. A hand is dealt without an up-card
+ * (see <tt>HandGenerator.dealWithoutUpCard</tt>), so its result against an up-card is weighted by the likelihood of
+ * that up-card given the cards that are gone from the shoe, and the expected value against the up-card is the
+ * weighted mean of the results. Statistics from separate tasks can be merged.
+ */
+class UpCardTrialStatistics {
+    private static final int UP_CARD_VALUE_COUNT = Card.ACE.getValue() + 1; // indexed by card value (2-11)
+    private static final int DECISION_COUNT = Decision.values().length;
+
+    private long trialCount = 0;
+
+    // each array is indexed by [up-card value][decision ordinal]
+    private final double[][] weightSums = new double[UP_CARD_VALUE_COUNT][DECISION_COUNT];
+    private final double[][] weightedSums = new double[UP_CARD_VALUE_COUNT][DECISION_COUNT];
+    private final double[][] squareWeightSums = new double[UP_CARD_VALUE_COUNT][DECISION_COUNT];
+    private final double[][] squareWeightedSums = new double[UP_CARD_VALUE_COUNT][DECISION_COUNT];
+    private final double[][] squareWeightedSquareSums = new double[UP_CARD_VALUE_COUNT][DECISION_COUNT];
+
+    /**
+     * Counts one dealt hand, which should then be recorded against every up-card with <tt>addResult</tt>.
+     */
+    void addTrial() {
+        trialCount += 1;
+    }
+
+    /**
+     * Records the result of one decision on a dealt hand against one up-card.
+     * @param upCardValue the value of the up-card (2-11, where 11 is an ace)
+     * @param decision the decision
+     * @param weight the likelihood of the up-card given the cards gone from the shoe
+     * @param unitsWon the units won
+     */
+    void addResult(int upCardValue, Decision decision, double weight, double unitsWon) {
+        final int i = decision.ordinal();
+        final double weightedUnitsWon = weight * unitsWon;
+        weightSums[upCardValue][i] += weight;
+        weightedSums[upCardValue][i] += weightedUnitsWon;
+        squareWeightSums[upCardValue][i] += weight * weight;
+        squareWeightedSums[upCardValue][i] += weight * weightedUnitsWon;
+        squareWeightedSquareSums[upCardValue][i] += weightedUnitsWon * weightedUnitsWon;
+    }
+
+    void merge(UpCardTrialStatistics other) {
+        trialCount += other.trialCount;
+
+        for (int upCardValue = 0; upCardValue < UP_CARD_VALUE_COUNT; upCardValue++) {
+            for (int i = 0; i < DECISION_COUNT; i++) {
+                weightSums[upCardValue][i] += other.weightSums[upCardValue][i];
+                weightedSums[upCardValue][i] += other.weightedSums[upCardValue][i];
+                squareWeightSums[upCardValue][i] += other.squareWeightSums[upCardValue][i];
+                squareWeightedSums[upCardValue][i] += other.squareWeightedSums[upCardValue][i];
+                squareWeightedSquareSums[upCardValue][i] += other.squareWeightedSquareSums[upCardValue][i];
+            }
+        }
+    }
+
+    long getTrialCount() {
+        return trialCount;
+    }
+
+    double getMean(int upCardValue, Decision decision) {
+        return weightedSums[upCardValue][decision.ordinal()] / weightSums[upCardValue][decision.ordinal()];
+    }
+
+    /**
+     * @param upCardValue the value of the up-card (2-11, where 11 is an ace)
+     * @param decision a simulated decision
+     * @param confidenceBound the number of standard errors on either side of the mean that the interval spans
+     * @return the estimate of the decision's expected value against the up-card. The variance of the weighted mean
+     * is the weighted sum of squared deviations from it, divided by the square of the total weight.
+     */
+    Estimate getEstimate(int upCardValue, Decision decision, double confidenceBound) {
+        final int i = decision.ordinal();
+        final double mean = getMean(upCardValue, decision);
+        final double weightSum = weightSums[upCardValue][i];
+        final double squaredDeviationSum = squareWeightedSquareSums[upCardValue][i]
+                - 2 * mean * squareWeightedSums[upCardValue][i] + mean * mean * squareWeightSums[upCardValue][i];
+        final double standardError = Math.sqrt(Math.max(0, squaredDeviationSum)) / weightSum;
+
+        return new Estimate(mean, confidenceBound * standardError, trialCount);
+    }
+}
@@ -0,0 +1,67 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that simulating only until the best decision is settled still gives the expected values of the other tests.
+ */
+@RunWith(Parameterized.class)
+public class AdaptiveEvaluationTest {
+    private static final int SIMULATION_COUNT = 10000000; // at most
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(1000) // essentially infinite
+            .setPenetrationValue(1.0)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+    private static final Decider d = new Decider(r, SIMULATION_COUNT, EvaluationMode.ADAPTIVE);
+
+    @Parameterized.Parameters
+    public static Iterable<?> data() {
+        final List<Object> params = new ArrayList<>();
+        for (Iterable<?> testData : new Iterable<?>[]{HardHandTest.data(), SoftHandTest.data()}) {
+            for (Object param : testData) {
+                params.add(param);
+            }
+        }
+
+        return params;
+    }
+
+    @Parameterized.Parameter
+    public Map.Entry<Scenario, Map<Decision, Double>> param;
+
+    @Test
+    public void testDecision() throws Exception {
+        final Scenario scenario = param.getKey();
+        final Map<Decision, Double> decisionMap = param.getValue();
+        final Decision bestDecision = TestUtils.maxOverMap(decisionMap).get(Decision.class);
+
+        // simulation stops early, so an expected value is only as close as its confidence interval says
+        for (Map.Entry<Decision, Estimate> entry : d.computeEstimates(scenario).entrySet()) {
+            final Decision decision = entry.getKey();
+            final Estimate estimate = entry.getValue();
+
+            // we don't need to check this
+            if (decision.equals(Decision.SURRENDER)) {
+                continue;
+            }
+
+            final double targetValue = decisionMap.get(decision);
+            TestUtils.assertTrue("The expected value of " + decision + " on " + scenario + " is about " + targetValue,
+                    TestUtils.approximatelyEqual(estimate.getMean(), targetValue) ||
+                            Math.abs(estimate.getMean() - targetValue) <= estimate.getHalfWidth());
+        }
+
+        TestUtils.assertTrue("We should " + bestDecision + " on " + scenario,
+                bestDecision.equals(d.computeBestScenarioResult(scenario).get(Decision.class)));
+    }
+}
@@ -0,0 +1,69 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Checks that simulating a chart row against every up-card on the same hands gives the expected values of simulating
+ * each up-card on its own, and that each hand is dealt once for the whole row.
+ */
+public class AllUpCardsTest {
+    private static final int SIMULATION_COUNT = 200000;
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(6)
+            .setPenetrationValue(0.75)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+    // with a finite shoe, the exact evaluator leaves the player's cards in the shoe when the dealer draws, unlike every
+    // simulated mode (see EvaluationMode), so the reference values come from simulating each up-card on its own
+    private static final Decider referenceDecider = new DeciderBuilder()
+            .setRule(r)
+            .setSimulationCount(SIMULATION_COUNT)
+            .setEvaluationMode(EvaluationMode.COMMON_RANDOM_NUMBERS)
+            .setSeed(20170117L)
+            .build();
+    private static final Decider d = new DeciderBuilder()
+            .setRule(r)
+            .setSimulationCount(SIMULATION_COUNT)
+            .setEvaluationMode(EvaluationMode.ALL_UP_CARDS)
+            .setSeed(20170117L)
+            .build();
+
+    private static void testRow(int playerValue, boolean isPlayerSoft) throws Exception {
+        final StrategyTable row = d.solveRow(playerValue, isPlayerSoft, false);
+        TestUtils.assertTrue("The row has every up-card", row.getScenarios().size() == 10);
+
+        final DeciderMetrics.Snapshot snapshot = d.getMetrics().snapshot();
+        for (Scenario scenario : row.getScenarios()) {
+            TestUtils.assertTrue("The hands of " + scenario + " were shared by the row",
+                    snapshot.getTrialCount(scenario) == SIMULATION_COUNT);
+
+            // the shoe is corrected for each up-card, so every value is as close as the two intervals say
+            final Map<Decision, Estimate> referenceEstimates = referenceDecider.computeEstimates(scenario);
+            for (Map.Entry<Decision, Estimate> entry : d.computeEstimates(scenario).entrySet()) {
+                final Decision decision = entry.getKey();
+                final Estimate estimate = entry.getValue();
+                final Estimate referenceEstimate = referenceEstimates.get(decision);
+                final double targetValue = referenceEstimate.getMean();
+                TestUtils.assertTrue("The expected value of " + decision + " on " + scenario + " is about "
+                        + targetValue, TestUtils.approximatelyEqual(estimate.getMean(), targetValue) ||
+                        Math.abs(estimate.getMean() - targetValue)
+                                <= Math.hypot(estimate.getHalfWidth(), referenceEstimate.getHalfWidth()));
+            }
+        }
+    }
+
+    @Test
+    public void testHard16() throws Exception {
+        testRow(16, false);
+    }
+
+    @Test
+    public void testSoft18() throws Exception {
+        testRow(18, true);
+    }
+}
@@ -0,0 +1,132 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import static test.TestUtils.assertTrue;
+
+/**
+ * Checks that asynchronous requests give the same expected values as blocking ones, share work, and can be cancelled.
+ */
+public class AsyncSolveTest {
+    private static final int SIMULATION_COUNT = 10000;
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(6)
+            .setPenetrationValue(0.75)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+
+    private static final Scenario hard16 = new ScenarioBuilder()
+            .setPlayerValue(16)
+            .setDealerCard(Card.TEN)
+            .setSoftFlag(false)
+            .setPairFlag(false)
+            .build();
+    private static final Scenario soft18 = new ScenarioBuilder()
+            .setPlayerValue(18)
+            .setDealerCard(Card.NINE)
+            .setSoftFlag(true)
+            .setPairFlag(false)
+            .build();
+
+    private static Decider buildDecider(EvaluationMode evaluationMode, ForkJoinPool pool) {
+        return new DeciderBuilder()
+                .setRule(r)
+                .setSimulationCount(SIMULATION_COUNT)
+                .setEvaluationMode(evaluationMode)
+                .setPool(pool)
+                .build();
+    }
+
+    /**
+     * Occupies the only thread of <tt>pool</tt> until the returned latch counts down.
+     */
+    private static CountDownLatch blockPool(ForkJoinPool pool) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        pool.execute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        return latch;
+    }
+
+    @Test
+    public void testSameAsBlocking() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final Decider d = buildDecider(EvaluationMode.EXACT, pool);
+            final List<Scenario> scenarios = Arrays.asList(hard16, soft18);
+            final Map<Scenario, Map<Decision, Double>> expectedValues = d.computeExpectedValuesAsync(scenarios).get();
+
+            assertTrue("Every scenario is solved, in order",
+                    expectedValues.keySet().equals(new LinkedHashSet<>(scenarios)));
+            for (Scenario scenario : scenarios) {
+                assertTrue("Asynchronous values match blocking ones for " + scenario,
+                        expectedValues.get(scenario).equals(d.computeExpectedValues(scenario)));
+            }
+            assertTrue("The best result matches the blocking one",
+                    d.computeBestScenarioResultAsync(hard16).get().get(Decision.class)
+                            .equals(d.computeBestScenarioResult(hard16).get(Decision.class)));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSharedSolve() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            final Decider d = buildDecider(EvaluationMode.COMMON_RANDOM_NUMBERS, pool);
+            final CountDownLatch latch = blockPool(pool);
+            final CompletableFuture<Map<Decision, Double>> first = d.computeExpectedValuesAsync(hard16);
+            final CompletableFuture<Map<Decision, Double>> second = d.computeExpectedValuesAsync(hard16);
+            final CompletableFuture<Map<Decision, Double>> cancelled = d.computeExpectedValuesAsync(hard16);
+            cancelled.cancel(false);
+            latch.countDown();
+
+            assertTrue("Requests for the same scenario share one solve", first.get() == second.get());
+            assertTrue("Cancelling one request leaves the others running", cancelled.isCancelled());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelBeforeStart() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            final Decider d = buildDecider(EvaluationMode.SIMULATION, pool);
+            final CountDownLatch latch = blockPool(pool);
+            final CompletableFuture<Map<Scenario, Map<Decision, Double>>> result =
+                    d.computeExpectedValuesAsync(Arrays.asList(hard16, soft18));
+            result.cancel(false);
+            latch.countDown();
+
+            // wait for the dropped solves to leave the queue
+            pool.submit(() -> {}).get();
+            while (!pool.isQuiescent()) {
+                Thread.sleep(10);
+            }
+
+            assertTrue("Nothing is simulated for cancelled requests", d.getMetrics().getHandCount() == 0);
+            assertTrue("A later request solves the scenario",
+                    d.computeExpectedValuesAsync(hard16).get().equals(d.computeExpectedValues(hard16)));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
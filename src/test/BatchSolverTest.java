@@ -0,0 +1,45 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Checks the chart written by the command-line solver.
+ */
+public class BatchSolverTest {
+    private static String[] solve(String... args) throws Exception {
+        final PrintStream systemOut = System.out;
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, "UTF-8"));
+        try {
+            BatchSolver.main(args);
+        } finally {
+            System.setOut(systemOut);
+        }
+
+        return output.toString("UTF-8").split("\\R");
+    }
+
+    @Test
+    public void testCsv() throws Exception {
+        final String[] lines = solve("--decks", "6", "--surrender", "--mode", "exact", "--format", "csv");
+        TestUtils.assertTrue("There is a header and a row for every scenario",
+                lines.length == Scenario.getAll().size() + 1);
+        TestUtils.assertTrue("Hard 16 versus Ten is surrendered",
+                Arrays.asList(lines).contains("6,1.0,false,true,4,16,false,false,Ten,SURRENDER,-0.500000,"
+                        + "-0.537712,-0.539523,-1.075423,,-0.500000"));
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        final String[] lines = solve("--decks", "6", "--mode", "exact", "--format", "json");
+        TestUtils.assertTrue("There is an object for every scenario", lines.length == Scenario.getAll().size());
+        for (String line : lines) {
+            TestUtils.assertTrue("Each line is an object", line.startsWith("{") && line.endsWith("}}"));
+        }
+    }
+}
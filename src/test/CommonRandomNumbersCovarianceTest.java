@@ -0,0 +1,62 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Checks that simulating every decision on the same hands makes the decisions' results move together, so that their
+ * difference is known more precisely than either value.
+ */
+public class CommonRandomNumbersCovarianceTest {
+    private static final int SIMULATION_COUNT = 100000;
+
+    private static void testCovariance(int deckCount, Scenario scenario) throws Exception {
+        final Rule r = new RuleBuilder()
+                .setDeckCount(deckCount)
+                .setPenetrationValue(0.75)
+                .setDealerHitsSoft17(false)
+                .setCanSurrender(false)
+                .setMaxSplitHands(4)
+                .build();
+        final Decider d = new DeciderBuilder()
+                .setRule(r)
+                .setSimulationCount(SIMULATION_COUNT)
+                .setEvaluationMode(EvaluationMode.COMMON_RANDOM_NUMBERS)
+                .setSeed(20170117L)
+                .build();
+
+        final Map<Decision, Estimate> estimates = d.computeEstimates(scenario);
+        final double hitHalfWidth = estimates.get(Decision.HIT).getHalfWidth();
+        final double doubleHalfWidth = estimates.get(Decision.DOUBLE).getHalfWidth();
+        final double differenceHalfWidth =
+                d.computeDifferenceEstimate(scenario, Decision.HIT, Decision.DOUBLE).getHalfWidth();
+
+        // Var(H - D) = Var(H) + Var(D) - 2 Cov(H, D), so the covariance is half of what the difference saves
+        final double covarianceTerm = hitHalfWidth * hitHalfWidth + doubleHalfWidth * doubleHalfWidth
+                - differenceHalfWidth * differenceHalfWidth;
+        TestUtils.assertTrue("Hitting and doubling down on " + scenario + " with " + deckCount
+                + " deck(s) are positively correlated", covarianceTerm > hitHalfWidth * doubleHalfWidth);
+    }
+
+    @Test
+    public void testSingleDeck() throws Exception {
+        testCovariance(1, new ScenarioBuilder()
+                .setPlayerValue(9)
+                .setDealerCard(Card.SIX)
+                .setSoftFlag(false)
+                .setPairFlag(false)
+                .build());
+    }
+
+    @Test
+    public void testManyDecks() throws Exception {
+        testCovariance(1000, new ScenarioBuilder()
+                .setPlayerValue(10)
+                .setDealerCard(Card.TEN)
+                .setSoftFlag(false)
+                .setPairFlag(false)
+                .build());
+    }
+}
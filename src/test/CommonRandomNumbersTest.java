@@ -0,0 +1,46 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that simulating every decision on the same hands gives the same expected values as the other tests.
+ */
+@RunWith(Parameterized.class)
+public class CommonRandomNumbersTest {
+    private static final int SIMULATION_COUNT = 1000000;
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(1000) // essentially infinite
+            .setPenetrationValue(1.0)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+    private static final Decider d = new Decider(r, SIMULATION_COUNT, EvaluationMode.COMMON_RANDOM_NUMBERS);
+
+    @Parameterized.Parameters
+    public static Iterable<?> data() {
+        final List<Object> params = new ArrayList<>();
+        for (Iterable<?> testData : new Iterable<?>[]{HardHandTest.data(), SoftHandTest.data()}) {
+            for (Object param : testData) {
+                params.add(param);
+            }
+        }
+
+        return params;
+    }
+
+    @Parameterized.Parameter
+    public Map.Entry<Scenario, Map<Decision, Double>> param;
+
+    @Test
+    public void testDecision() throws Exception {
+        TestUtils.testDecision(d, param);
+    }
+}
@@ -0,0 +1,121 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static test.TestUtils.assertTrue;
+
+/**
+ * Checks composition-dependent decisions for single-deck play, where the cards in the player's hand matter.
+ */
+public class CompositionTest {
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(1)
+            .setPenetrationValue(1.0)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+    private static final CompositionSolver solver = new CompositionSolver(r);
+
+    private static Decision getBestDecision(List<Card> playerCards, Card dealerCard) {
+        return solver.computeBestResult(playerCards, dealerCard).get(Decision.class);
+    }
+
+    @Test
+    public void testHard16VersusTen() {
+        assertTrue("We should hit a two-card 16 versus a Ten",
+                getBestDecision(Arrays.asList(Card.TEN, Card.SIX), Card.TEN).equals(Decision.HIT));
+        assertTrue("We should stand on 4-4-4-4 versus a Ten",
+                getBestDecision(Arrays.asList(Card.FOUR, Card.FOUR, Card.FOUR, Card.FOUR), Card.TEN)
+                        .equals(Decision.STAND));
+    }
+
+    @Test
+    public void testHard12VersusFour() {
+        assertTrue("We should hit 10-2 versus a Four",
+                getBestDecision(Arrays.asList(Card.KING, Card.TWO), Card.FOUR).equals(Decision.HIT));
+        assertTrue("We should stand on 7-5 versus a Four",
+                getBestDecision(Arrays.asList(Card.SEVEN, Card.FIVE), Card.FOUR).equals(Decision.STAND));
+    }
+
+    @Test
+    public void testMultiCardHands() {
+        final Rule surrenderRule = new RuleBuilder()
+                .setDeckCount(1)
+                .setPenetrationValue(1.0)
+                .setDealerHitsSoft17(false)
+                .setCanSurrender(true)
+                .setMaxSplitHands(4)
+                .build();
+        final CompositionSolver surrenderSolver = new CompositionSolver(surrenderRule);
+
+        final Decision fourCard16Decision = surrenderSolver.computeBestResult(
+                Arrays.asList(Card.FOUR, Card.FOUR, Card.FOUR, Card.FOUR), Card.TEN).get(Decision.class);
+        assertTrue("We cannot surrender 4-4-4-4 versus a Ten", !fourCard16Decision.equals(Decision.SURRENDER));
+
+        final Decision fourCard11Decision = surrenderSolver.computeBestResult(
+                Arrays.asList(Card.TWO, Card.THREE, Card.FOUR, Card.TWO), Card.FIVE).get(Decision.class);
+        assertTrue("We cannot double down on 2-3-4-2 versus a Five", !fourCard11Decision.equals(Decision.DOUBLE));
+    }
+
+    @Test
+    public void testUpCardTakenFromShoe() {
+        boolean rejected = false;
+        try {
+            solver.computeExpectedValues(Arrays.asList(Card.ACE, Card.ACE, Card.ACE, Card.ACE), Card.ACE);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+
+        assertTrue("A single deck does not hold four Aces and an Ace up-card", rejected);
+    }
+
+    @Test
+    public void testSimulatedDealerDrawsFromDepletedShoe() throws Exception {
+        final Decider d = new DeciderBuilder()
+                .setRule(r)
+                .setSimulationCount(100000)
+                .setEvaluationMode(EvaluationMode.COMMON_RANDOM_NUMBERS)
+                .setSeed(20170117L)
+                .build();
+
+        // a pair scenario is always dealt the pair itself, so its values are those of the pair's exact cards
+        for (Card pairCard : new Card[]{Card.EIGHT, Card.NINE}) {
+            for (Card dealerCard : new Card[]{Card.SIX, Card.TEN}) {
+                final Scenario scenario = new ScenarioBuilder()
+                        .setPlayerValue(2 * pairCard.getValue())
+                        .setDealerCard(dealerCard)
+                        .setSoftFlag(false)
+                        .setPairFlag(true)
+                        .build();
+                final Map<Decision, Double> exactValues =
+                        solver.computeExpectedValues(Arrays.asList(pairCard, pairCard), dealerCard);
+                final Map<Decision, Estimate> estimates = d.computeEstimates(scenario);
+
+                assertTrue("The value of standing on " + scenario + " takes the pair out of the dealer's shoe",
+                        Math.abs(estimates.get(Decision.STAND).getMean() - exactValues.get(Decision.STAND)) < 1e-9);
+                for (Decision decision : new Decision[]{Decision.HIT, Decision.DOUBLE}) {
+                    final Estimate estimate = estimates.get(decision);
+                    final double targetValue = exactValues.get(decision);
+                    assertTrue("The expected value of " + decision + " on " + scenario + " is about " + targetValue,
+                            TestUtils.approximatelyEqual(estimate.getMean(), targetValue) ||
+                                    Math.abs(estimate.getMean() - targetValue) <= estimate.getHalfWidth());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        final CompositionSolver smallSolver = new CompositionSolver(r, 100);
+        final List<Card> hand = Arrays.asList(Card.EIGHT, Card.EIGHT);
+        assertTrue("A small memo gives the same expected values",
+                smallSolver.computeExpectedValues(hand, Card.SIX).equals(solver.computeExpectedValues(hand, Card.SIX)));
+        assertTrue("A small memo stays small", smallSolver.getMemoSize() <= 100);
+    }
+}
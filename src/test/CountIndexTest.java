@@ -0,0 +1,75 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.util.SortedMap;
+
+import static test.TestUtils.assertTrue;
+
+/**
+ * Checks Hi-Lo index numbers against the well-known ones for six decks.
+ */
+public class CountIndexTest {
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(6)
+            .setPenetrationValue(0.75)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+    private static final CountIndexSolver solver = new CountIndexSolver(r, CountingSystem.HI_LO);
+    private static final IndexTable table = solver.solve(-10, 10);
+
+    private static Scenario hardHand(int playerValue, Card dealerCard) {
+        return new ScenarioBuilder()
+                .setPlayerValue(playerValue)
+                .setDealerCard(dealerCard)
+                .setSoftFlag(false)
+                .setPairFlag(false)
+                .build();
+    }
+
+    // checks that the best decision changes once, from one decision to another, within [lowIndex, highIndex]
+    private static void testIndex(Scenario scenario, Decision below, Decision above, int lowIndex, int highIndex) {
+        final SortedMap<Integer, Decision> indices = table.getIndices(scenario);
+        assertTrue(scenario + " has one index (" + indices + ")", indices.size() == 2);
+        assertTrue(scenario + " goes from " + below + " to " + above + " (" + indices + ")",
+                indices.get(indices.firstKey()) == below && indices.get(indices.lastKey()) == above);
+        assertTrue(scenario + " changes near the known index (" + indices + ")",
+                indices.lastKey() >= lowIndex && indices.lastKey() <= highIndex);
+    }
+
+    @Test
+    public void testComposition() {
+        final int[] valueCounts = solver.getValueCounts(0);
+        assertTrue("A count of 0 leaves a neutral shoe", valueCounts[Card.TWO.getValue()] * 4 == valueCounts[10]
+                && valueCounts[Card.TWO.getValue()] == valueCounts[Card.ACE.getValue()]);
+
+        final int[] richValueCounts = solver.getValueCounts(5);
+        int cardCount = 0;
+        int richCardCount = 0;
+        for (int value = Card.TWO.getValue(); value <= Card.ACE.getValue(); value++) {
+            cardCount += valueCounts[value];
+            richCardCount += richValueCounts[value];
+        }
+        assertTrue("Every count leaves the same number of cards", cardCount == richCardCount);
+        assertTrue("A high count leaves more tens", richValueCounts[10] > valueCounts[10]);
+    }
+
+    @Test
+    public void testIndices() {
+        testIndex(hardHand(16, Card.TEN), Decision.HIT, Decision.STAND, -1, 2);
+        testIndex(hardHand(15, Card.TEN), Decision.HIT, Decision.STAND, 3, 5);
+        testIndex(hardHand(12, Card.THREE), Decision.HIT, Decision.STAND, 1, 3);
+        testIndex(hardHand(12, Card.FOUR), Decision.HIT, Decision.STAND, -1, 1);
+        testIndex(hardHand(11, Card.ACE), Decision.HIT, Decision.DOUBLE, 0, 2);
+        testIndex(hardHand(10, Card.ACE), Decision.HIT, Decision.DOUBLE, 3, 5);
+    }
+
+    @Test
+    public void testSharedCharts() {
+        assertTrue("The same composition gives the same chart",
+                solver.getStrategyTable(3) == table.getStrategyTable(3));
+    }
+}
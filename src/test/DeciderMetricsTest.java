@@ -0,0 +1,83 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks the counters that a decider keeps of its work.
+ */
+public class DeciderMetricsTest {
+    private static final int SIMULATION_COUNT = 20000;
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(6)
+            .setPenetrationValue(0.75)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+    private static final Scenario pairOfEights = new ScenarioBuilder()
+            .setPlayerValue(16)
+            .setDealerCard(Card.TEN)
+            .setSoftFlag(false)
+            .setPairFlag(true)
+            .build();
+
+    @Test
+    public void testSnapshot() throws Exception {
+        final Decider d = new DeciderBuilder()
+                .setRule(r)
+                .setSimulationCount(SIMULATION_COUNT)
+                .build();
+        final AtomicLong lastProgress = new AtomicLong();
+        final AtomicBoolean progressWentBackward = new AtomicBoolean();
+        d.getMetrics().addProgressListener(handCount -> {
+            if (lastProgress.getAndSet(handCount) >= handCount) {
+                progressWentBackward.set(true);
+            }
+        });
+        d.computeExpectedValues(pairOfEights);
+
+        final DeciderMetrics.Snapshot snapshot = d.getMetrics().snapshot();
+        TestUtils.assertTrue("Hitting and doubling down were simulated",
+                snapshot.getTrialCount(pairOfEights) == 2 * SIMULATION_COUNT);
+        TestUtils.assertTrue("Every hand dealt was counted", snapshot.getHandCount()
+                == snapshot.getTrialCount(Decision.HIT) + snapshot.getTrialCount(Decision.DOUBLE));
+        TestUtils.assertTrue("Progress listeners saw every hand", lastProgress.get() == snapshot.getHandCount());
+        TestUtils.assertTrue("Progress listeners saw the hand count grow", !progressWentBackward.get());
+        long scenarioShoeRebuildCount = 0;
+        for (Scenario scenario : snapshot.getScenarioTrialCounts().keySet()) {
+            scenarioShoeRebuildCount += snapshot.getShoeRebuildCount(scenario);
+        }
+        TestUtils.assertTrue("Every shoe refill was counted toward its scenario",
+                scenarioShoeRebuildCount == snapshot.getShoeRebuildCount() && scenarioShoeRebuildCount > 0);
+        TestUtils.assertTrue("Splitting is computed from the split hands instead of simulated",
+                snapshot.getTrialCount(Decision.SPLIT) == 0);
+        TestUtils.assertTrue("Each request was timed", snapshot.getRequestCount(Decision.SPLIT) == 1
+                && snapshot.getLatencyPercentileNanos(Decision.SPLIT, 0.5) > 0);
+        TestUtils.assertTrue("Standing is never simulated", snapshot.getTrialCount(Decision.STAND) == 0);
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        final Decider d = new DeciderBuilder()
+                .setRule(r)
+                .setSimulationCount(SIMULATION_COUNT)
+                .setEvaluationMode(EvaluationMode.COMMON_RANDOM_NUMBERS)
+                .build();
+        d.computeExpectedValues(pairOfEights);
+
+        final ObjectName name = d.getMetrics().registerMBean("DeciderMetricsTest");
+        try {
+            final Object handCount = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "HandCount");
+            TestUtils.assertTrue("The MBean shows the hand count",
+                    handCount.equals(d.getMetrics().snapshot().getHandCount()));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
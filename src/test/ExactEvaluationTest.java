@@ -0,0 +1,45 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the exact evaluator against the same expected values that the simulation tests use.
+ */
+@RunWith(Parameterized.class)
+public class ExactEvaluationTest {
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(1000) // essentially infinite
+            .setPenetrationValue(1.0)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+    private static final Decider d = new Decider(r, 0, EvaluationMode.EXACT);
+
+    @Parameterized.Parameters
+    public static Iterable<?> data() {
+        final List<Object> params = new ArrayList<>();
+        for (Iterable<?> testData : new Iterable<?>[]{HardHandTest.data(), SoftHandTest.data(), H16vTNSTest.data()}) {
+            for (Object param : testData) {
+                params.add(param);
+            }
+        }
+
+        return params;
+    }
+
+    @Parameterized.Parameter
+    public Map.Entry<Scenario, Map<Decision, Double>> param;
+
+    @Test
+    public void testDecision() throws Exception {
+        TestUtils.testDecision(d, param);
+    }
+}
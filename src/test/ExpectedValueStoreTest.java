@@ -0,0 +1,83 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Checks that expected values kept in an <tt>ExpectedValueStore</tt> are reused by later deciders.
+ */
+public class ExpectedValueStoreTest {
+    private static final int SIMULATION_COUNT = 50000;
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(6)
+            .setPenetrationValue(0.75)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+
+    private static Map<Decision, Double> solvePairOfEights(Path file, int simulationCount) throws Exception {
+        try (ExpectedValueStore store = ExpectedValueStore.open(file)) {
+            // no seed, so only the store can make two deciders agree
+            final Decider d = new DeciderBuilder()
+                    .setRule(r)
+                    .setSimulationCount(simulationCount)
+                    .setStore(store)
+                    .build();
+            final Scenario scenario = new ScenarioBuilder()
+                    .setPlayerValue(16)
+                    .setDealerCard(Card.TEN)
+                    .setSoftFlag(false)
+                    .setPairFlag(true)
+                    .build();
+
+            return d.computeExpectedValues(scenario);
+        }
+    }
+
+    @Test
+    public void testReopenedStore() throws Exception {
+        final Path file = Files.createTempFile("expected-values", ".bin");
+        try {
+            TestUtils.assertTrue("A reopened store gives the same expected values",
+                    solvePairOfEights(file, SIMULATION_COUNT).equals(solvePairOfEights(file, SIMULATION_COUNT)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testOtherSettings() throws Exception {
+        final Path file = Files.createTempFile("expected-values", ".bin");
+        try {
+            TestUtils.assertTrue("Values are not shared between different settings",
+                    !solvePairOfEights(file, SIMULATION_COUNT).equals(solvePairOfEights(file, SIMULATION_COUNT + 1)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCutOffRecord() throws Exception {
+        final Path file = Files.createTempFile("expected-values", ".bin");
+        try {
+            final Map<Decision, Double> expectedValues = solvePairOfEights(file, SIMULATION_COUNT);
+
+            // simulate a write that was cut off
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(raf.length());
+                raf.write(new byte[] {1, 2, 3});
+            }
+
+            TestUtils.assertTrue("A cut-off record is dropped",
+                    expectedValues.equals(solvePairOfEights(file, SIMULATION_COUNT)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that an infinite deck, computed exactly and simulated, gives the expected values that the other tests
+ * approximate with 1000 decks.
+ */
+@RunWith(Parameterized.class)
+public class InfiniteDeckTest {
+    private static final int SIMULATION_COUNT = 10000000; // at most
+    private static final Rule r = new RuleBuilder()
+            .setInfiniteDeck(true)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+    private static final Decider exactDecider = new Decider(r, 0, EvaluationMode.EXACT);
+    private static final Decider simulatedDecider = new Decider(r, SIMULATION_COUNT, EvaluationMode.ADAPTIVE);
+
+    @Parameterized.Parameters
+    public static Iterable<?> data() {
+        final List<Object> params = new ArrayList<>();
+        for (Iterable<?> testData : new Iterable<?>[]{HardHandTest.data(), SoftHandTest.data(), H16vTNSTest.data()}) {
+            for (Object param : testData) {
+                params.add(param);
+            }
+        }
+
+        return params;
+    }
+
+    @Parameterized.Parameter
+    public Map.Entry<Scenario, Map<Decision, Double>> param;
+
+    @Test
+    public void testExact() throws Exception {
+        TestUtils.testDecision(exactDecider, param);
+    }
+
+    @Test
+    public void testSimulation() throws Exception {
+        final Scenario scenario = param.getKey();
+        final Map<Decision, Double> exactValues = exactDecider.computeExpectedValues(scenario);
+
+        // simulation stops early, so an expected value is only as close as its confidence interval says
+        for (Map.Entry<Decision, Estimate> entry : simulatedDecider.computeEstimates(scenario).entrySet()) {
+            final Decision decision = entry.getKey();
+            final Estimate estimate = entry.getValue();
+            final double targetValue = exactValues.get(decision);
+            TestUtils.assertTrue("The simulated expected value of " + decision + " on " + scenario + " is about "
+                    + targetValue, TestUtils.approximatelyEqual(estimate.getMean(), targetValue) ||
+                    Math.abs(estimate.getMean() - targetValue) <= estimate.getHalfWidth());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Checks that scenarios with provably identical expected values share one simulation.
+ */
+public class ScenarioEquivalenceTest {
+    private static final int SIMULATION_COUNT = 20000;
+
+    private static Rule buildRule(boolean infiniteDeck) {
+        return new RuleBuilder()
+                .setDeckCount(6)
+                .setPenetrationValue(0.75)
+                .setDealerHitsSoft17(false)
+                .setCanSurrender(false)
+                .setMaxSplitHands(4)
+                .setInfiniteDeck(infiniteDeck)
+                .build();
+    }
+
+    private static Scenario buildScenario(int playerValue, Card dealerCard, boolean isPlayerSoft, boolean isPair) {
+        return new ScenarioBuilder()
+                .setPlayerValue(playerValue)
+                .setDealerCard(dealerCard)
+                .setSoftFlag(isPlayerSoft)
+                .setPairFlag(isPair)
+                .build();
+    }
+
+    private static boolean haveSameValue(Decider d, Decision decision, Scenario scenario, Scenario otherScenario)
+            throws Exception {
+        return d.computeExpectedValues(scenario).get(decision)
+                .equals(d.computeExpectedValues(otherScenario).get(decision));
+    }
+
+    @Test
+    public void testTenValuedUpCards() throws Exception {
+        final Decider d = new DeciderBuilder()
+                .setRule(buildRule(false))
+                .setSimulationCount(SIMULATION_COUNT)
+                .setEvaluationMode(EvaluationMode.COMMON_RANDOM_NUMBERS)
+                .build();
+        final Scenario hard16VersusTen = buildScenario(16, Card.TEN, false, false);
+        final Scenario hard16VersusKing = buildScenario(16, Card.KING, false, false);
+
+        TestUtils.assertTrue("A king and a ten share the expected values of hard 16",
+                d.computeExpectedValues(hard16VersusKing).equals(d.computeExpectedValues(hard16VersusTen)));
+        TestUtils.assertTrue("Hard 16 against a king was not simulated on its own",
+                d.getMetrics().snapshot().getTrialCount(hard16VersusKing) == 0);
+    }
+
+    @Test
+    public void testInfiniteDeck() throws Exception {
+        final Rule r = buildRule(true);
+        final Decider d = new DeciderBuilder()
+                .setRule(r)
+                .setSimulationCount(SIMULATION_COUNT)
+                .build();
+        final Decider exactDecider = new Decider(r, 0, EvaluationMode.EXACT);
+
+        final Scenario[][] equivalentScenarios = {
+                {buildScenario(16, Card.SEVEN, false, true), buildScenario(16, Card.SEVEN, false, false)},
+                {buildScenario(20, Card.SIX, true, false), buildScenario(10, Card.SIX, false, false)},
+                {buildScenario(21, Card.ACE, true, false), buildScenario(11, Card.ACE, false, false)},
+        };
+        for (Scenario[] scenarios : equivalentScenarios) {
+            for (Decision decision : new Decision[]{Decision.HIT, Decision.DOUBLE}) {
+                final Map<Decision, Double> exactValues = exactDecider.computeExpectedValues(scenarios[0]);
+                final Map<Decision, Double> otherExactValues = exactDecider.computeExpectedValues(scenarios[1]);
+                TestUtils.assertTrue("The exact values of " + decision + " on " + scenarios[0] + " and "
+                        + scenarios[1] + " match",
+                        Math.abs(exactValues.get(decision) - otherExactValues.get(decision)) < 1e-9);
+                TestUtils.assertTrue("The simulated values of " + decision + " on " + scenarios[0] + " and "
+                        + scenarios[1] + " are shared", haveSameValue(d, decision, scenarios[0], scenarios[1]));
+            }
+        }
+    }
+}
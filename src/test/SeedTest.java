@@ -0,0 +1,48 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Checks that a seed makes simulated expected values reproducible.
+ */
+public class SeedTest {
+    private static final int SIMULATION_COUNT = 50000;
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(6)
+            .setPenetrationValue(0.75)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+
+    private static Map<Decision, Double> solvePairOfEights(long seed) throws Exception {
+        final Decider d = new DeciderBuilder()
+                .setRule(r)
+                .setSimulationCount(SIMULATION_COUNT)
+                .setSeed(seed)
+                .build();
+        final Scenario scenario = new ScenarioBuilder()
+                .setPlayerValue(16)
+                .setDealerCard(Card.TEN)
+                .setSoftFlag(false)
+                .setPairFlag(true)
+                .build();
+
+        return d.computeExpectedValues(scenario);
+    }
+
+    @Test
+    public void testSameSeed() throws Exception {
+        TestUtils.assertTrue("The same seed gives the same expected values",
+                solvePairOfEights(42).equals(solvePairOfEights(42)));
+    }
+
+    @Test
+    public void testDifferentSeed() throws Exception {
+        TestUtils.assertTrue("Different seeds give different expected values",
+                !solvePairOfEights(42).equals(solvePairOfEights(43)));
+    }
+}
@@ -0,0 +1,81 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static test.TestUtils.assertTrue;
+
+/**
+ * Checks a full strategy chart solved with the exact evaluator.
+ */
+public class StrategyTableTest {
+    private static final Rule r = new RuleBuilder()
+            .setDeckCount(1000) // essentially infinite
+            .setPenetrationValue(1.0)
+            .setDealerHitsSoft17(false)
+            .setCanSurrender(false)
+            .setMaxSplitHands(4)
+            .build();
+    private static final Decider d = new Decider(r, 0, EvaluationMode.EXACT);
+
+    @Test
+    public void testSolveAll() throws Exception {
+        final StrategyTable table = d.solveAll();
+
+        assertTrue("The table covers every scenario", table.getScenarios().size() == Scenario.getAll().size());
+        for (Scenario scenario : Scenario.getAll()) {
+            final Pair<Decision, Double> p = d.computeBestScenarioResult(scenario);
+            assertTrue("The table agrees with the decider on " + scenario,
+                    table.getBestDecision(scenario).equals(p.get(Decision.class)) &&
+                            table.getBestValue(scenario) == p.get(Double.class));
+
+            if (scenario.isPair && scenario.playerValue == 16) {
+                assertTrue("We should split 8's versus " + scenario.dealerCard,
+                        table.getBestDecision(scenario).equals(Decision.SPLIT));
+            } else if (!scenario.isPair && !scenario.isPlayerSoft && scenario.playerValue == 11) {
+                assertTrue("We should double on " + scenario,
+                        table.getBestDecision(scenario).equals(scenario.dealerCard.equals(Card.ACE)
+                                ? Decision.HIT // hard 11 versus an ace is a hit when the dealer stands on soft 17
+                                : Decision.DOUBLE));
+            }
+        }
+    }
+
+    @Test
+    public void testLayerOrder() throws Exception {
+        final Decider layerDecider = new Decider(r, 0, EvaluationMode.EXACT);
+        final Map<Scenario, Integer> solveOrder = new HashMap<>();
+        layerDecider.solveAll((scenario, expectedValues) -> solveOrder.put(scenario, solveOrder.size()));
+
+        for (Scenario scenario : Scenario.getAll()) {
+            if (scenario.isPair) {
+                continue;
+            }
+
+            // every hand made by taking one more card must have been solved first
+            for (int cardValue = 2; cardValue <= 11; cardValue++) {
+                int nextValue = scenario.playerValue + cardValue;
+                int softAceCount = (scenario.isPlayerSoft ? 1 : 0) + (cardValue == 11 ? 1 : 0);
+                while (nextValue > 21 && softAceCount > 0) {
+                    nextValue -= 10; // count an ace as 1
+                    softAceCount -= 1;
+                }
+                final boolean isNextSoft = softAceCount > 0;
+
+                final Scenario nextScenario = new ScenarioBuilder()
+                        .setPlayerValue(nextValue)
+                        .setDealerCard(scenario.dealerCard)
+                        .setSoftFlag(isNextSoft)
+                        .setPairFlag(false)
+                        .build();
+                if (solveOrder.containsKey(nextScenario)) {
+                    assertTrue(nextScenario + " was solved before " + scenario,
+                            solveOrder.get(nextScenario) < solveOrder.get(scenario));
+                }
+            }
+        }
+    }
+}